@@ -0,0 +1,132 @@
+package com.example.expensemate.data;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs EXPLAIN QUERY PLAN on the filtering queries of TransactionDao and fails if SQLite
+ * would scan a whole table instead of searching one of its indexes.
+ * The SQL is taken from the constants the @Query annotations use, with Room's named parameters
+ * bound in the order they appear.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransactionQueryPlanTest {
+    private static final long START = 1704067200000L;
+    private static final long END = 1706745600000L;
+    private static final int YEAR_MONTH = 202401;
+
+    private AppDatabase database;
+    private SupportSQLiteDatabase db;
+
+    @Before
+    public void createDatabase() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        db = database.getOpenHelper().getWritableDatabase();
+    }
+
+    @After
+    public void closeDatabase() {
+        database.close();
+    }
+
+    @Test
+    public void summaryTotalsUseIndex() {
+        assertNoFullScan(TransactionDao.EXPENSE_TOTAL_QUERY, YEAR_MONTH, null, null);
+        assertNoFullScan(TransactionDao.INCOME_TOTAL_QUERY, YEAR_MONTH, 1L, 1L);
+    }
+
+    @Test
+    public void summaryCategorySumsUseIndex() {
+        assertNoFullScan(TransactionDao.EXPENSE_CATEGORY_SUMS_QUERY, YEAR_MONTH, null, null);
+        assertNoFullScan(TransactionDao.INCOME_CATEGORY_SUMS_QUERY, YEAR_MONTH, 1L, 1L);
+    }
+
+    @Test
+    public void summaryCategoryTransactionsUseIndex() {
+        assertNoFullScan(TransactionDao.CATEGORY_TRANSACTIONS_QUERY,
+                "Food", "DEBIT", START, END, null, null);
+    }
+
+    @Test
+    public void transactionPagesUseIndex() {
+        assertNoFullScan(TransactionDao.OLDER_THAN_QUERY,
+                START, END, END, Long.MAX_VALUE, null, null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, 50);
+        assertNoFullScan(TransactionDao.NEWER_THAN_QUERY,
+                START, END, START, 10L, null, null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, 50);
+        // Account details screen
+        assertNoFullScan(TransactionDao.OLDER_THAN_QUERY,
+                START, END, END, Long.MAX_VALUE, 1L, 1L, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, 50);
+    }
+
+    @Test
+    public void smsHashLookupUsesIndex() {
+        assertNoFullScan(TransactionDao.COUNT_BY_SMS_HASH_QUERY, 12345L);
+    }
+
+    @Test
+    public void smsSendersUseIndex() {
+        assertNoFullScan(TransactionDao.SMS_SENDERS_QUERY);
+        assertNoSort(TransactionDao.SMS_SENDERS_QUERY);
+    }
+
+    @Test
+    public void smsHashesAreReadInDateIndexOrder() {
+        // Reads every hashed row by design, but must walk the date index rather than sort the table
+        List<String> plan = queryPlan(TransactionDao.SMS_HASHES_NEWEST_FIRST_QUERY);
+        for (String detail : plan) {
+            assertTrue("Table read without an index in plan " + plan,
+                    !detail.startsWith("SCAN") || detail.contains(" USING "));
+        }
+        assertNoSort(TransactionDao.SMS_HASHES_NEWEST_FIRST_QUERY);
+    }
+
+    private void assertNoFullScan(String query, Object... args) {
+        List<String> plan = queryPlan(query, args);
+        for (String detail : plan) {
+            // "SCAN transactions" on newer SQLite, "SCAN TABLE transactions" on older releases.
+            // A SCAN over a covering index still reads every row, so it fails the check as well.
+            assertFalse("Full scan in plan " + plan + " for: " + query,
+                    detail.startsWith("SCAN") && !detail.startsWith("SCAN CONSTANT ROW"));
+        }
+    }
+
+    private void assertNoSort(String query, Object... args) {
+        List<String> plan = queryPlan(query, args);
+        for (String detail : plan) {
+            assertFalse("Sort in plan " + plan + " for: " + query, detail.startsWith("USE TEMP B-TREE"));
+        }
+    }
+
+    private List<String> queryPlan(String query, Object... args) {
+        // Room binds every occurrence of a named parameter as a positional one
+        String sql = query.replaceAll(":\\w+", "?");
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detailIndex));
+            }
+        }
+        return plan;
+    }
+}
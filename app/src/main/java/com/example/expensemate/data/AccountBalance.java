@@ -0,0 +1,26 @@
+package com.example.expensemate.data;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Running balance of an account: credits minus debits of its summary-included transactions.
+ * Rows are maintained by the triggers created in AppDatabase and are never written from Java.
+ */
+@Entity(tableName = "account_balances")
+public class AccountBalance {
+    @PrimaryKey
+    private long accountId;
+    private long balancePaise;
+
+    public AccountBalance(long accountId, long balancePaise) {
+        this.accountId = accountId;
+        this.balancePaise = balancePaise;
+    }
+
+    public long getAccountId() { return accountId; }
+    public void setAccountId(long accountId) { this.accountId = accountId; }
+
+    public long getBalancePaise() { return balancePaise; }
+    public void setBalancePaise(long balancePaise) { this.balancePaise = balancePaise; }
+}
@@ -18,15 +18,24 @@ public interface AccountDao {
     @Query("SELECT * FROM accounts WHERE isDefault = 1 LIMIT 1")
     Account getDefaultAccountSync();
 
+    @Query("SELECT id FROM accounts")
+    List<Long> getAllAccountIds();
+
     @Query("UPDATE accounts SET isDefault = 0 WHERE isDefault = 1")
     void clearDefaultAccount();
 
     @Query("UPDATE accounts SET isDefault = 1 WHERE id = :accountId")
     void setDefaultAccount(long accountId);
 
+    @Query("SELECT * FROM account_balances")
+    LiveData<List<AccountBalance>> getAccountBalances();
+
     @Insert
     void insert(Account account);
 
+    @Insert
+    void insertAll(List<Account> accounts);
+
     @Update
     void update(Account account);
 
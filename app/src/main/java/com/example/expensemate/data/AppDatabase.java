@@ -1,6 +1,7 @@
 package com.example.expensemate.data;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.util.Log;
 
 import androidx.room.Database;
@@ -9,6 +10,10 @@ import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
 import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.example.expensemate.utils.SmsCompression;
+import com.example.expensemate.utils.SmsFingerprint;
 
 import java.io.File;
 import java.io.FileWriter;
@@ -17,7 +22,7 @@ import java.util.List;
 
 import androidx.annotation.NonNull;
 
-@Database(entities = {Transaction.class, Category.class, RecurringPayment.class, Account.class}, version = 5, exportSchema = false)
+@Database(entities = {Transaction.class, Category.class, RecurringPayment.class, Account.class, MonthlyCategoryTotal.class, AccountBalance.class, TransactionSms.class}, version = 13, exportSchema = false)
 @TypeConverters(Converters.class)
 public abstract class AppDatabase extends RoomDatabase {
     private static volatile AppDatabase INSTANCE;
@@ -150,6 +155,302 @@ public abstract class AppDatabase extends RoomDatabase {
         }
     };
 
+    private static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Amounts move from REAL rupees to INTEGER paise. SQLite cannot change a column type in place,
+            // so both tables are rebuilt and the old values are rounded to the nearest paisa on copy.
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS `transactions_new` (" +
+                "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`amountPaise` INTEGER NOT NULL, " +
+                "`description` TEXT, " +
+                "`date` INTEGER, " +
+                "`transactionType` TEXT, " +
+                "`receiverName` TEXT, " +
+                "`smsBody` TEXT, " +
+                "`smsSender` TEXT, " +
+                "`category` TEXT, " +
+                "`linkedRecurringPaymentId` INTEGER, " +
+                "`smsHash` TEXT, " +
+                "`accountId` INTEGER, " +
+                "`isExcludedFromSummary` INTEGER NOT NULL DEFAULT 0" +
+                ")");
+            database.execSQL(
+                "INSERT INTO `transactions_new` (`id`, `amountPaise`, `description`, `date`, `transactionType`, " +
+                "`receiverName`, `smsBody`, `smsSender`, `category`, `linkedRecurringPaymentId`, `smsHash`, " +
+                "`accountId`, `isExcludedFromSummary`) " +
+                "SELECT `id`, CAST(ROUND(`amount` * 100) AS INTEGER), `description`, `date`, `transactionType`, " +
+                "`receiverName`, `smsBody`, `smsSender`, `category`, `linkedRecurringPaymentId`, `smsHash`, " +
+                "`accountId`, `isExcludedFromSummary` FROM `transactions`");
+            database.execSQL("DROP TABLE `transactions`");
+            database.execSQL("ALTER TABLE `transactions_new` RENAME TO `transactions`");
+
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS `recurring_payments_new` (" +
+                "`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, " +
+                "`name` TEXT, " +
+                "`amountPaise` INTEGER NOT NULL, " +
+                "`dueDay` INTEGER NOT NULL, " +
+                "`expiryDate` INTEGER, " +
+                "`isCompleted` INTEGER NOT NULL DEFAULT 0, " +
+                "`lastCompletedDate` INTEGER" +
+                ")");
+            database.execSQL(
+                "INSERT INTO `recurring_payments_new` (`id`, `name`, `amountPaise`, `dueDay`, `expiryDate`, " +
+                "`isCompleted`, `lastCompletedDate`) " +
+                "SELECT `id`, `name`, CAST(ROUND(`amount` * 100) AS INTEGER), `dueDay`, `expiryDate`, " +
+                "`isCompleted`, `lastCompletedDate` FROM `recurring_payments`");
+            database.execSQL("DROP TABLE `recurring_payments`");
+            database.execSQL("ALTER TABLE `recurring_payments_new` RENAME TO `recurring_payments`");
+        }
+    };
+
+    private static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Indexes from INITIAL_MIGRATION that no query filters on
+            database.execSQL("DROP INDEX IF EXISTS `index_transactions_category_month_year`");
+            database.execSQL("DROP INDEX IF EXISTS `index_transactions_expense_month_year`");
+            database.execSQL("DROP INDEX IF EXISTS `index_transactions_income_month_year`");
+
+            createTransactionIndexes(database);
+        }
+    };
+
+    private static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Create monthly_category_totals rollup table
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS `monthly_category_totals` (" +
+                "`yearMonth` INTEGER NOT NULL, " +
+                "`accountId` INTEGER NOT NULL, " +
+                "`transactionType` TEXT NOT NULL, " +
+                "`category` TEXT NOT NULL, " +
+                "`totalPaise` INTEGER NOT NULL, " +
+                "`transactionCount` INTEGER NOT NULL, " +
+                "PRIMARY KEY(`yearMonth`, `transactionType`, `accountId`, `category`)" +
+                ")");
+
+            // Fill it from the existing transactions, the triggers keep it current from here on
+            database.execSQL(
+                "INSERT INTO `monthly_category_totals` " +
+                "(`yearMonth`, `transactionType`, `accountId`, `category`, `totalPaise`, `transactionCount`) " +
+                "SELECT " + localYearMonth("t") + ", t.transactionType, COALESCE(t.accountId, 0), " +
+                "COALESCE(t.category, 'Default'), SUM(t.amountPaise), COUNT(*) " +
+                "FROM transactions t WHERE " + rollupIncluded("t") + " " +
+                "GROUP BY 1, 2, 3, 4");
+
+            // The triggers are created by MIGRATION_11_12, they read the month key stored since then
+        }
+    };
+
+    private static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Create account_balances ledger table
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS `account_balances` (" +
+                "`accountId` INTEGER NOT NULL, " +
+                "`balancePaise` INTEGER NOT NULL, " +
+                "PRIMARY KEY(`accountId`)" +
+                ")");
+
+            // Fill it from the existing transactions, the triggers keep it current from here on
+            database.execSQL(
+                "INSERT INTO `account_balances` (`accountId`, `balancePaise`) " +
+                "SELECT t.accountId, SUM(" + balanceDelta("t") + ") " +
+                "FROM transactions t WHERE " + balanceIncluded("t") + " " +
+                "GROUP BY t.accountId");
+
+            createAccountBalancesTriggers(database);
+        }
+    };
+
+    private static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Create transaction_sms side table
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS `transaction_sms` (" +
+                "`transactionId` INTEGER NOT NULL, " +
+                "`compressedBody` BLOB, " +
+                "`sender` TEXT, " +
+                "PRIMARY KEY(`transactionId`)" +
+                ")");
+
+            // Move the SMS of every transaction into it. Bodies are compressed in Java, so rows go through a cursor
+            SupportSQLiteStatement insertSms = database.compileStatement(
+                "INSERT INTO `transaction_sms` (`transactionId`, `compressedBody`, `sender`) VALUES (?, ?, ?)");
+            try (Cursor cursor = database.query(
+                    "SELECT `id`, `smsBody`, `smsSender` FROM `transactions` " +
+                    "WHERE `smsBody` IS NOT NULL OR `smsSender` IS NOT NULL")) {
+                while (cursor.moveToNext()) {
+                    insertSms.bindLong(1, cursor.getLong(0));
+                    if (cursor.isNull(1)) {
+                        insertSms.bindNull(2);
+                    } else {
+                        insertSms.bindBlob(2, SmsCompression.compress(cursor.getString(1)));
+                    }
+                    if (cursor.isNull(2)) {
+                        insertSms.bindNull(3);
+                    } else {
+                        insertSms.bindString(3, cursor.getString(2));
+                    }
+                    insertSms.executeInsert();
+                    insertSms.clearBindings();
+                }
+            } finally {
+                try {
+                    insertSms.close();
+                } catch (Exception e) {
+                    Log.w("AppDatabase", "Error closing statement", e);
+                }
+            }
+
+            // Rebuild transactions without the SMS columns, SQLite before 3.35 cannot drop a column
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS `transactions_new` (" +
+                "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`amountPaise` INTEGER NOT NULL, " +
+                "`description` TEXT, " +
+                "`date` INTEGER, " +
+                "`transactionType` TEXT, " +
+                "`receiverName` TEXT, " +
+                "`category` TEXT, " +
+                "`linkedRecurringPaymentId` INTEGER, " +
+                "`smsHash` TEXT, " +
+                "`accountId` INTEGER, " +
+                "`isExcludedFromSummary` INTEGER NOT NULL DEFAULT 0" +
+                ")");
+            database.execSQL(
+                "INSERT INTO `transactions_new` (`id`, `amountPaise`, `description`, `date`, `transactionType`, " +
+                "`receiverName`, `category`, `linkedRecurringPaymentId`, `smsHash`, `accountId`, `isExcludedFromSummary`) " +
+                "SELECT `id`, `amountPaise`, `description`, `date`, `transactionType`, " +
+                "`receiverName`, `category`, `linkedRecurringPaymentId`, `smsHash`, `accountId`, `isExcludedFromSummary` " +
+                "FROM `transactions`");
+            database.execSQL("DROP TABLE `transactions`");
+            database.execSQL("ALTER TABLE `transactions_new` RENAME TO `transactions`");
+
+            // Indexes and triggers went with the old table, the rollup triggers are created by MIGRATION_11_12
+            createTransactionIndexes(database);
+            createAccountBalancesTriggers(database);
+            createTransactionSmsTriggers(database);
+        }
+    };
+
+    private static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Rebuild transactions with smsHash as INTEGER. The old 32-bit text hashes are dropped,
+            // the fingerprints are recomputed from transaction_sms below
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS `transactions_new` (" +
+                "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`amountPaise` INTEGER NOT NULL, " +
+                "`description` TEXT, " +
+                "`date` INTEGER, " +
+                "`transactionType` TEXT, " +
+                "`receiverName` TEXT, " +
+                "`category` TEXT, " +
+                "`linkedRecurringPaymentId` INTEGER, " +
+                "`smsHash` INTEGER, " +
+                "`accountId` INTEGER, " +
+                "`isExcludedFromSummary` INTEGER NOT NULL DEFAULT 0" +
+                ")");
+            database.execSQL(
+                "INSERT INTO `transactions_new` (`id`, `amountPaise`, `description`, `date`, `transactionType`, " +
+                "`receiverName`, `category`, `linkedRecurringPaymentId`, `accountId`, `isExcludedFromSummary`) " +
+                "SELECT `id`, `amountPaise`, `description`, `date`, `transactionType`, " +
+                "`receiverName`, `category`, `linkedRecurringPaymentId`, `accountId`, `isExcludedFromSummary` " +
+                "FROM `transactions`");
+            database.execSQL("DROP TABLE `transactions`");
+            database.execSQL("ALTER TABLE `transactions_new` RENAME TO `transactions`");
+
+            // Fingerprint the stored SMS before any trigger exists, so the updates do not touch the totals.
+            // Where two transactions hold the same SMS, the older one keeps the fingerprint and
+            // UPDATE OR IGNORE leaves the other without one
+            database.execSQL(
+                "CREATE UNIQUE INDEX IF NOT EXISTS `index_transactions_smsHash` " +
+                "ON `transactions` (`smsHash`)");
+            SupportSQLiteStatement updateHash = database.compileStatement(
+                "UPDATE OR IGNORE `transactions` SET `smsHash` = ? WHERE `id` = ?");
+            // Restores of older backups stored the text "null" for a transaction without an SMS
+            try (Cursor cursor = database.query(
+                    "SELECT `transactionId`, `compressedBody`, `sender` FROM `transaction_sms` " +
+                    "WHERE `compressedBody` IS NOT NULL AND `sender` IS NOT NULL AND `sender` <> 'null' " +
+                    "ORDER BY `transactionId`")) {
+                while (cursor.moveToNext()) {
+                    String body;
+                    try {
+                        body = SmsCompression.decompress(cursor.getBlob(1));
+                    } catch (IllegalArgumentException e) {
+                        Log.w("AppDatabase", "Unreadable SMS of transaction " + cursor.getLong(0), e);
+                        continue;
+                    }
+                    updateHash.bindLong(1, SmsFingerprint.of(body, cursor.getString(2)));
+                    updateHash.bindLong(2, cursor.getLong(0));
+                    updateHash.executeUpdateDelete();
+                    updateHash.clearBindings();
+                }
+            } finally {
+                try {
+                    updateHash.close();
+                } catch (Exception e) {
+                    Log.w("AppDatabase", "Error closing statement", e);
+                }
+            }
+
+            // The other indexes and the triggers went with the old table. The replace triggers are not
+            // created again, transactions are no longer inserted with INSERT OR REPLACE. The rollup
+            // triggers are created by MIGRATION_11_12
+            createTransactionIndexes(database);
+            createAccountBalancesTriggers(database);
+            createTransactionSmsTriggers(database);
+        }
+    };
+
+    private static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // The rollup triggers computed the month key in the time zone of the moment they fired, so after a
+            // time zone change a transaction could be taken out of another month than it was added to.
+            // The key is now stored on the row
+            database.execSQL("DROP TRIGGER IF EXISTS `transactions_rollup_insert`");
+            database.execSQL("DROP TRIGGER IF EXISTS `transactions_rollup_delete`");
+            database.execSQL("DROP TRIGGER IF EXISTS `transactions_rollup_update_old`");
+            database.execSQL("DROP TRIGGER IF EXISTS `transactions_rollup_update_new`");
+
+            database.execSQL("ALTER TABLE `transactions` ADD COLUMN `yearMonth` INTEGER");
+            database.execSQL(
+                "UPDATE `transactions` SET `yearMonth` = " + localYearMonth("transactions") + " " +
+                "WHERE `date` IS NOT NULL");
+
+            // Rebuilt from the stored keys, which also drops what earlier time zone changes left behind
+            database.execSQL("DELETE FROM `monthly_category_totals`");
+            database.execSQL(
+                "INSERT INTO `monthly_category_totals` " +
+                "(`yearMonth`, `transactionType`, `accountId`, `category`, `totalPaise`, `transactionCount`) " +
+                "SELECT " + rollupYearMonth("t") + ", t.transactionType, COALESCE(t.accountId, 0), " +
+                "COALESCE(t.category, 'Default'), SUM(t.amountPaise), COUNT(*) " +
+                "FROM transactions t WHERE " + rollupIncluded("t") + " " +
+                "GROUP BY 1, 2, 3, 4");
+
+            createMonthlyCategoryTotalsTriggers(database);
+        }
+    };
+
+    private static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // TransactionDao.getSmsSenders reads the senders from this index instead of every compressed body
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_transaction_sms_sender` " +
+                "ON `transaction_sms` (`sender`)");
+        }
+    };
+
     public abstract TransactionDao transactionDao();
     public abstract CategoryDao categoryDao();
     public abstract RecurringPaymentDao recurringPaymentDao();
@@ -175,6 +476,143 @@ public abstract class AppDatabase extends RoomDatabase {
         }
     }
 
+    // Month key of a transaction row in the current device time zone, only used to fill the rollup.
+    // Evaluated when a statement runs, so triggers must not use it, see rollupYearMonth
+    private static String localYearMonth(String row) {
+        return "CAST(strftime('%Y%m', " + row + ".date / 1000, 'unixepoch', 'localtime') AS INTEGER)";
+    }
+
+    // Month key a transaction row is counted under, stored on the row (Transaction.yearMonth) so that
+    // removing the row always finds the monthly_category_totals row adding it updated
+    private static String rollupYearMonth(String row) {
+        return row + ".yearMonth";
+    }
+
+    // Condition for a transaction row to count in the summary
+    private static String rollupIncluded(String row) {
+        return row + ".isExcludedFromSummary = 0 AND " + row + ".transactionType IN ('DEBIT', 'CREDIT') AND " +
+                row + ".date IS NOT NULL";
+    }
+
+    // Condition matching the monthly_category_totals row a transaction row is counted in
+    private static String rollupKeyOf(String row) {
+        return "monthly_category_totals.yearMonth = " + rollupYearMonth(row) + " AND " +
+                "monthly_category_totals.transactionType = " + row + ".transactionType AND " +
+                "monthly_category_totals.accountId = COALESCE(" + row + ".accountId, 0) AND " +
+                "monthly_category_totals.category = COALESCE(" + row + ".category, 'Default')";
+    }
+
+    // Not INSERT OR IGNORE: the conflict clause of the statement firing a trigger overrides the one inside it,
+    // so an INSERT OR REPLACE into transactions would reset the existing totals row
+    private static String rollupAdd(String row) {
+        return "INSERT INTO monthly_category_totals " +
+                "(yearMonth, transactionType, accountId, category, totalPaise, transactionCount) SELECT " +
+                rollupYearMonth(row) + ", " + row + ".transactionType, COALESCE(" + row + ".accountId, 0), " +
+                "COALESCE(" + row + ".category, 'Default'), 0, 0 " +
+                "WHERE NOT EXISTS (SELECT 1 FROM monthly_category_totals WHERE " + rollupKeyOf(row) + "); " +
+                "UPDATE monthly_category_totals SET totalPaise = totalPaise + " + row + ".amountPaise, " +
+                "transactionCount = transactionCount + 1 WHERE " + rollupKeyOf(row) + "; ";
+    }
+
+    private static String rollupRemove(String row) {
+        return "UPDATE monthly_category_totals SET totalPaise = totalPaise - " + row + ".amountPaise, " +
+                "transactionCount = transactionCount - 1 WHERE " + rollupKeyOf(row) + "; " +
+                "DELETE FROM monthly_category_totals WHERE " + rollupKeyOf(row) + " AND transactionCount <= 0; ";
+    }
+
+    /**
+     * Creates the triggers keeping monthly_category_totals equal to the per month, account, type and category
+     * sums of the summary-included transactions
+     */
+    static void createMonthlyCategoryTotalsTriggers(SupportSQLiteDatabase database) {
+        database.execSQL(
+            "CREATE TRIGGER IF NOT EXISTS `transactions_rollup_insert` AFTER INSERT ON `transactions` " +
+            "WHEN " + rollupIncluded("NEW") + " BEGIN " + rollupAdd("NEW") + "END");
+
+        database.execSQL(
+            "CREATE TRIGGER IF NOT EXISTS `transactions_rollup_delete` AFTER DELETE ON `transactions` " +
+            "WHEN " + rollupIncluded("OLD") + " BEGIN " + rollupRemove("OLD") + "END");
+
+        database.execSQL(
+            "CREATE TRIGGER IF NOT EXISTS `transactions_rollup_update_old` AFTER UPDATE ON `transactions` " +
+            "WHEN " + rollupIncluded("OLD") + " BEGIN " + rollupRemove("OLD") + "END");
+
+        database.execSQL(
+            "CREATE TRIGGER IF NOT EXISTS `transactions_rollup_update_new` AFTER UPDATE ON `transactions` " +
+            "WHEN " + rollupIncluded("NEW") + " BEGIN " + rollupAdd("NEW") + "END");
+    }
+
+    // Condition for a transaction row to count in its account balance
+    private static String balanceIncluded(String row) {
+        return row + ".accountId IS NOT NULL AND " + row + ".isExcludedFromSummary = 0 AND " +
+                row + ".transactionType IN ('DEBIT', 'CREDIT')";
+    }
+
+    // Signed effect of a transaction row on its account balance
+    private static String balanceDelta(String row) {
+        return "CASE " + row + ".transactionType WHEN 'CREDIT' THEN " + row + ".amountPaise " +
+                "ELSE -" + row + ".amountPaise END";
+    }
+
+    private static String balanceAdd(String row) {
+        return "INSERT INTO account_balances (accountId, balancePaise) SELECT " + row + ".accountId, 0 " +
+                "WHERE NOT EXISTS (SELECT 1 FROM account_balances WHERE accountId = " + row + ".accountId); " +
+                "UPDATE account_balances SET balancePaise = balancePaise + (" + balanceDelta(row) + ") " +
+                "WHERE accountId = " + row + ".accountId; ";
+    }
+
+    private static String balanceRemove(String row) {
+        return "UPDATE account_balances SET balancePaise = balancePaise - (" + balanceDelta(row) + ") " +
+                "WHERE accountId = " + row + ".accountId; ";
+    }
+
+    /**
+     * Creates the triggers keeping account_balances equal to credits minus debits of the
+     * summary-included transactions of each account
+     */
+    static void createAccountBalancesTriggers(SupportSQLiteDatabase database) {
+        database.execSQL(
+            "CREATE TRIGGER IF NOT EXISTS `transactions_balance_insert` AFTER INSERT ON `transactions` " +
+            "WHEN " + balanceIncluded("NEW") + " BEGIN " + balanceAdd("NEW") + "END");
+
+        database.execSQL(
+            "CREATE TRIGGER IF NOT EXISTS `transactions_balance_delete` AFTER DELETE ON `transactions` " +
+            "WHEN " + balanceIncluded("OLD") + " BEGIN " + balanceRemove("OLD") + "END");
+
+        database.execSQL(
+            "CREATE TRIGGER IF NOT EXISTS `transactions_balance_update_old` AFTER UPDATE ON `transactions` " +
+            "WHEN " + balanceIncluded("OLD") + " BEGIN " + balanceRemove("OLD") + "END");
+
+        database.execSQL(
+            "CREATE TRIGGER IF NOT EXISTS `transactions_balance_update_new` AFTER UPDATE ON `transactions` " +
+            "WHEN " + balanceIncluded("NEW") + " BEGIN " + balanceAdd("NEW") + "END");
+    }
+
+    /**
+     * Creates the trigger removing the SMS of a deleted transaction
+     */
+    static void createTransactionSmsTriggers(SupportSQLiteDatabase database) {
+        database.execSQL(
+            "CREATE TRIGGER IF NOT EXISTS `transactions_sms_delete` AFTER DELETE ON `transactions` " +
+            "BEGIN DELETE FROM transaction_sms WHERE transactionId = OLD.id; END");
+    }
+
+    // Indexes declared on Transaction, except the unique smsHash index. That one can only be created
+    // once the fingerprints are computed, see MIGRATION_10_11
+    private static void createTransactionIndexes(SupportSQLiteDatabase database) {
+        database.execSQL(
+            "CREATE INDEX IF NOT EXISTS `index_transactions_account_summary` " +
+            "ON `transactions` (`accountId`, `transactionType`, `isExcludedFromSummary`, `date`, `amountPaise`)");
+
+        database.execSQL(
+            "CREATE INDEX IF NOT EXISTS `index_transactions_period_summary` " +
+            "ON `transactions` (`transactionType`, `isExcludedFromSummary`, `date`, `category`, `accountId`, `amountPaise`)");
+
+        database.execSQL(
+            "CREATE INDEX IF NOT EXISTS `index_transactions_date` " +
+            "ON `transactions` (`date`)");
+    }
+
     private static void insertDefaultAccount(AccountDao accountDao) {
         Account defaultAccount = new Account("Savings", "", "", null, "Default savings account");
         defaultAccount.setDefault(true);
@@ -187,7 +625,7 @@ public abstract class AppDatabase extends RoomDatabase {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                             AppDatabase.class, "expense_mate_database")
-                            .addMigrations(INITIAL_MIGRATION, MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5)
+                            .addMigrations(INITIAL_MIGRATION, MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12, MIGRATION_12_13)
                             .fallbackToDestructiveMigration()
                             .addCallback(new RoomDatabase.Callback() {
                                 @Override
@@ -203,6 +641,12 @@ public abstract class AppDatabase extends RoomDatabase {
                                 @Override
                                 public void onOpen(@NonNull SupportSQLiteDatabase db) {
                                     super.onOpen(db);
+                                    // Room creates the tables from the entities, without the triggers, on a new
+                                    // database and on a destructive migration. The latter skips onCreate, so the
+                                    // triggers are created here, IF NOT EXISTS makes that a no-op afterwards
+                                    createMonthlyCategoryTotalsTriggers(db);
+                                    createAccountBalancesTriggers(db);
+                                    createTransactionSmsTriggers(db);
                                     // Check if default data exists and insert if they don't
                                     new Thread(() -> {
 //                                        List<Category> categories = INSTANCE.categoryDao().getAllCategoriesSync();
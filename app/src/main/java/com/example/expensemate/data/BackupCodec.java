@@ -0,0 +1,64 @@
+package com.example.expensemate.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of the payload of a binary backup, recorded by id in the backup header so that a
+ * reader picks the matching decoder. Ids are stored, they must never be reused.
+ */
+public enum BackupCodec {
+    NONE(0) {
+        @Override
+        OutputStream encode(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        InputStream decode(InputStream in) {
+            return in;
+        }
+    },
+    GZIP(1) {
+        @Override
+        OutputStream encode(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+
+        @Override
+        InputStream decode(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int id;
+
+    BackupCodec(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Wraps the stream the payload is written to, closing the result must finish the encoding
+     */
+    abstract OutputStream encode(OutputStream out) throws IOException;
+
+    abstract InputStream decode(InputStream in) throws IOException;
+
+    static BackupCodec fromId(int id) throws IOException {
+        for (BackupCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        throw new IOException("Unknown backup codec " + id);
+    }
+}
@@ -1,437 +1,272 @@
 package com.example.expensemate.data;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.util.Log;
 
 import com.example.expensemate.R;
 import com.example.expensemate.service.GoogleDriveService;
 import com.example.expensemate.service.GoogleSignInHelper;
+import com.example.expensemate.utils.SmsFingerprint;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class BackupDataLoader {
     private static final String TAG = "BackupDataLoader";
+    // Drive backups before the binary format hold categories.txt, recurring_payments.txt, accounts.txt and transactions.txt
+    private static final String BACKUP_FILE_NAME = "backup.bin";
+    private static final BackupCodec BACKUP_CODEC = BackupCodec.GZIP;
+    // Restored rows are inserted this many at a time, each batch in one database transaction
+    private static final int RESTORE_BATCH_SIZE = 1000;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
     private final AppDatabase database;
     private final ExecutorService executorService;
-    private final SimpleDateFormat dateFormat;
     private final Context context;
+    private final BackupReader.Sink restoreSink = new BackupReader.Sink() {
+        @Override
+        public void onCategory(Category category) {
+            restoreCategory(category);
+        }
+
+        @Override
+        public void onRecurringPayment(RecurringPayment payment) {
+            restoreRecurringPayment(payment);
+        }
+
+        @Override
+        public void onAccount(Account account) {
+            restoreAccount(account);
+        }
+
+        @Override
+        public void onTransaction(Transaction transaction) {
+            restoreTransaction(transaction);
+        }
+    };
+
+    // Restore state, kept until finishRestore. Rows wait in the pending lists for the next flushRestored
+    private final List<Category> pendingCategories = new ArrayList<>();
+    private final List<RecurringPayment> pendingPayments = new ArrayList<>();
+    private final List<Account> pendingAccounts = new ArrayList<>();
+    private final List<Transaction> pendingTransactions = new ArrayList<>();
+    private Set<String> categoryNames; // Existing and pending, loaded on the first restored category
+    private Set<Long> accountIds; // Existing and pending, loaded on the first restored account
+    private Long defaultAccountId;
+    private boolean defaultAccountResolved;
 
     public BackupDataLoader(Context context) {
         this.context = context;
         this.database = AppDatabase.getDatabase(context);
         this.executorService = Executors.newSingleThreadExecutor();
-        this.dateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
     }
 
     public void loadBackupData() {
 //        executorService.execute(() -> {
 //            try (BufferedReader reader = new BufferedReader(
 //                    new InputStreamReader(context.getResources().openRawResource(R.raw.local_backup_data)))) {
-//                String line;
-//                String currentSection = "";
-//                StringBuilder currentEntity = new StringBuilder();
-//
-//                while ((line = reader.readLine()) != null) {
-//                    if (line.startsWith("=== ")) {
-//                        // Process previous entity if exists
-//                        if (currentEntity.length() > 0) {
-//                            processEntity(currentSection, currentEntity.toString());
-//                            currentEntity = new StringBuilder();
-//                        }
-//                        currentSection = line.substring(4, line.length() - 4);
-//                        continue;
-//                    }
-//
-//                    if (line.equals("---")) {
-//                        // Process current entity
-//                        processEntity(currentSection, currentEntity.toString());
-//                        currentEntity = new StringBuilder();
-//                    } else {
-//                        currentEntity.append(line).append("\n");
-//                    }
-//                }
-//
-//                // Process last entity if exists
-//                if (currentEntity.length() > 0) {
-//                    processEntity(currentSection, currentEntity.toString());
-//                }
-//
+//                LegacyBackupReader.read(reader, null, restoreSink);
 //            } catch (IOException e) {
 //                Log.e(TAG, "Error reading backup file from resources", e);
+//            } finally {
+//                finishRestore();
 //            }
 //        });
     }
 
-    private void processEntity(String section, String entityData) {
-        try {
-            switch (section) {
-                case "TRANSACTIONS":
-                    processTransaction(entityData);
-                    break;
-                case "CATEGORIES":
-                    processCategory(entityData);
-                    break;
-                case "RECURRING PAYMENTS":
-                    processRecurringPayment(entityData);
-                    break;
-                case "ACCOUNTS":
-                    processAccount(entityData);
-                    break;
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error processing entity in section " + section, e);
+    // Transactions without an account get the default one when their batch is flushed
+    private void restoreTransaction(Transaction transaction) {
+        if (transaction.getTransactionType() == null) {
+            Log.i("Transaction",
+                    "Transaction type is null. Not inserting the transaction. Id:" + transaction.getId());
+            return;
         }
+        transaction.setSmsHash(SmsFingerprint.of(transaction.getSmsBody(), transaction.getSmsSender()));
+        if (transaction.getReceiverName() == null) {
+            transaction.setReceiverName("");
+        }
+        if (transaction.getDescription() == null) {
+            transaction.setDescription("");
+        }
+        pendingTransactions.add(transaction);
+        flushRestoredIfFull();
     }
 
-    private void processTransaction(String data) {
-        try {
-            Transaction transaction = new Transaction();
-            String[] lines = data.split("\n");
-            for (String line : lines) {
-                String[] parts = line.split(": ", 2);
-                if (parts.length != 2)
-                    continue;
-                String key = parts[0].trim();
-                String value = parts[1].trim();
-                Log.i("Transaction", "key:" + key + " val:" + value);
-                switch (key) {
-                    case "ID":
-                        transaction.setId(Long.parseLong(value));
-                        break;
-                    case "Amount":
-                        transaction.setAmount(Double.parseDouble(value));
-                        break;
-                    case "Description":
-                        transaction.setDescription(value);
-                        break;
-                    case "Date":
-                        transaction.setDate(dateFormat.parse(value));
-                        break;
-                    case "Transaction Type":
-                        if (value.trim().isEmpty()) {
-                            Log.i("Transaction", "Setting value as DEBIT for transaction type as it is empty");
-                            value = "DEBIT";
-                        }
-                        transaction.setTransactionType(value);
-                        break;
-                    case "Receiver":
-                        transaction.setReceiverName(value);
-                        break;
-                    case "Category":
-                        transaction.setCategory(value);
-                        break;
-                    case "Account id":
-                        if (!value.equalsIgnoreCase("null")) {
-                            Log.i("", "Account id is present for transaction id:" + transaction.getId());
-                            transaction.setAccountId(Long.parseLong(value));
-                            Log.i("", "Account id is " + transaction.getAccountId() + " for transaction id:"
-                                    + transaction.getId());
-                        }
-                        break;
-                    case "Is excluded from summary":
-                        if (!value.equals("null")) {
-                            transaction.setExcludedFromSummary(Boolean.parseBoolean(value));
-                        }
-                        break;
-                    case "Linked Payment ID":
-                        if (!value.equals("null")) {
-                            transaction.setLinkedRecurringPaymentId(Long.parseLong(value));
-                        }
-                        break;
-                    case "SMS Body":
-                        transaction.setSmsBody(value);
-                        break;
-                    case "SMS Sender":
-                        transaction.setSmsSender(value);
-                        break;
-                    case "SMS Hash":
-                        transaction.setSmsHash(value);
-                        break;
-                }
-            }
-
-            if (transaction.getAccountId() == null) {
-                Account defaultAccount = database.accountDao().getDefaultAccountSync();
-                Log.i("Transaction", "Account do not exist for transaction. Adding default account. Transaction Id:" + transaction.getId());
-                transaction.setAccountId(defaultAccount.getId());
-            }
-
-            if (transaction.getTransactionType() == null) {
-                Log.i("Transaction",
-                        "Transaction type is null. Not inserting the transaction. Id:" + transaction.getId());
-            } else {
-                if (transaction.getReceiverName() == null) {
-                    transaction.setReceiverName("");
-                }
-                if (transaction.getDescription() == null) {
-                    transaction.setDescription("");
-                }
-                database.transactionDao().insertTransaction(transaction);
-            }
-        } catch (ParseException e) {
-            Log.e(TAG, "Error parsing transaction date", e);
+    // Categories are matched by name, the restored one gets a new ID
+    private void restoreCategory(Category category) {
+        if (categoryNames == null) {
+            categoryNames = new HashSet<>(database.categoryDao().getAllCategoryNames());
+        }
+        if (categoryNames.add(category.getName())) {
+            category.setId(0);
+            pendingCategories.add(category);
+            flushRestoredIfFull();
         }
     }
 
-    private void processCategory(String data) {
-        try {
-            String[] lines = data.split("\n");
-            String name = "";
-            String type = "";
-
-            for (String line : lines) {
-                String[] parts = line.split(": ", 2);
-                if (parts.length != 2)
-                    continue;
+    private void restoreRecurringPayment(RecurringPayment payment) {
+        if (payment.getName() == null || payment.getName().trim().isEmpty()) {
+            // Do not insert
+        } else {
+            pendingPayments.add(payment);
+            flushRestoredIfFull();
+        }
+    }
 
-                String key = parts[0].trim();
-                String value = parts[1].trim();
-                Log.i("Category", "key:" + key + " val:" + value);
-                switch (key) {
-                    case "Name":
-                        name = value;
-                        break;
-                    case "Type":
-                        type = value;
-                        break;
-                }
-            }
+    private void restoreAccount(Account account) {
+        // Check if account with same ID already exists
+        if (accountIds == null) {
+            accountIds = new HashSet<>(database.accountDao().getAllAccountIds());
+        }
+        if (accountIds.add(account.getId())) {
+            pendingAccounts.add(account);
+            flushRestoredIfFull();
+        } else {
+            Log.i("Account", "Account with ID " + account.getId() + " already exists: " + account.getName());
+        }
+    }
 
-            if (!name.isEmpty() && !type.isEmpty()) {
-                Category category = new Category(name, type);
-                List<Category> categoriesByName = database.categoryDao().getCategoriesByName(name);
-                if (categoriesByName == null || categoriesByName.isEmpty()) {
-                    database.categoryDao().insertCategory(category);
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error processing category", e);
+    private void flushRestoredIfFull() {
+        int pending = pendingCategories.size() + pendingPayments.size() + pendingAccounts.size()
+                + pendingTransactions.size();
+        if (pending >= RESTORE_BATCH_SIZE) {
+            flushRestored();
         }
     }
 
-    private void processRecurringPayment(String data) {
+    /**
+     * Inserts the pending rows in one database transaction. If the batch fails, say on a duplicate
+     * id, it is rolled back and retried row by row so that only the offending rows are lost.
+     */
+    private void flushRestored() {
         try {
-            RecurringPayment payment = new RecurringPayment("", 0.0, 1, new Date());
+            database.runInTransaction(this::insertPending);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Restoring a batch failed, inserting its rows one at a time", e);
+            insertPendingOneByOne();
+        }
+        pendingCategories.clear();
+        pendingPayments.clear();
+        pendingAccounts.clear();
+        pendingTransactions.clear();
+    }
 
-            String[] lines = data.split("\n");
-            for (String line : lines) {
-                String[] parts = line.split(": ", 2);
-                if (parts.length != 2)
-                    continue;
+    // Parents first, transactions refer to accounts and recurring payments
+    private void insertPending() {
+        if (!pendingCategories.isEmpty()) {
+            database.categoryDao().insertCategories(pendingCategories);
+        }
+        if (!pendingPayments.isEmpty()) {
+            database.recurringPaymentDao().insertAll(pendingPayments);
+        }
+        if (!pendingAccounts.isEmpty()) {
+            database.accountDao().insertAll(pendingAccounts);
+        }
+        List<Transaction> transactions = withAccounts(pendingTransactions);
+        if (!transactions.isEmpty()) {
+            database.transactionDao().insertTransactions(transactions);
+        }
+    }
 
-                String key = parts[0].trim();
-                String value = parts[1].trim();
-                Log.i("RecPayment", "key:" + key + " val:" + value);
-
-                switch (key) {
-                    case "ID":
-                        payment.setId(Long.parseLong(value));
-                        break;
-                    case "Name":
-                        payment.setName(value);
-                        break;
-                    case "Amount":
-                        payment.setAmount(Double.parseDouble(value));
-                        break;
-                    case "Due Day":
-                        payment.setDueDay(Integer.parseInt(value));
-                        break;
-                    case "Expiry Date":
-                        payment.setExpiryDate(dateFormat.parse(value));
-                        break;
-                    case "Is Completed":
-                        payment.setCompleted(Boolean.parseBoolean(value));
-                        break;
-                    case "Last Completed Date":
-                        if (!value.equals("null")) {
-                            payment.setLastCompletedDate(dateFormat.parse(value));
-                        }
-                        break;
-                }
+    private void insertPendingOneByOne() {
+        for (Category category : pendingCategories) {
+            try {
+                database.categoryDao().insertCategory(category);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error restoring category " + category.getName(), e);
             }
-
-            if (payment.getName() == null || payment.getName().trim().isEmpty()) {
-                // Do not insert
-            } else {
+        }
+        for (RecurringPayment payment : pendingPayments) {
+            try {
                 database.recurringPaymentDao().insert(payment);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error restoring recurring payment " + payment.getId(), e);
             }
-        } catch (ParseException e) {
-            Log.e(TAG, "Error parsing recurring payment date", e);
         }
-    }
-
-    private void processAccount(String data) {
-        try {
-            String[] lines = data.split("\n");
-            long originalId = -1;
-            String name = "";
-            String accountNumber = "";
-            String bank = "";
-            Date expiryDate = null;
-            String description = "";
-            boolean isDefault = false;
-
-            for (String line : lines) {
-                String[] parts = line.split(": ", 2);
-                if (parts.length != 2)
-                    continue;
-
-                String key = parts[0].trim();
-                String value = parts[1].trim();
-                Log.i("Account", "key:" + key + " val:" + value);
-
-                switch (key) {
-                    case "ID":
-                        originalId = Long.parseLong(value);
-                        break;
-                    case "Name":
-                        name = value;
-                        break;
-                    case "Account Number":
-                        accountNumber = value;
-                        break;
-                    case "Bank":
-                        bank = value;
-                        break;
-                    case "Expiry Date":
-                        if (!value.equalsIgnoreCase("null")) {
-                            expiryDate = dateFormat.parse(value);
-                        }
-                        break;
-                    case "Description":
-                        description = value;
-                        break;
-                    case "Is Default":
-                        isDefault = Boolean.parseBoolean(value);
-                        break;
-                }
+        for (Account account : pendingAccounts) {
+            try {
+                database.accountDao().insert(account);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error restoring account " + account.getId(), e);
             }
+        }
+        for (Transaction transaction : withAccounts(pendingTransactions)) {
+            try {
+                database.transactionDao().insertTransaction(transaction);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error restoring transaction " + transaction.getId(), e);
+            }
+        }
+    }
 
-            if (!name.isEmpty()) {
-                Account account = new Account(name, accountNumber, bank, expiryDate, description);
-                account.setDefault(isDefault);
-
-                // Set the original ID to preserve referential integrity
-                if (originalId != -1) {
-                    account.setId(originalId);
-                }
-
-                // Check if account with same ID already exists
-                List<Account> existingAccounts = database.accountDao().getAllAccountsSync();
-                boolean accountExists = false;
-                if (existingAccounts != null) {
-                    for (Account existingAccount : existingAccounts) {
-                        if (existingAccount.getId() == originalId) {
-                            accountExists = true;
-                            break;
-                        }
-                    }
+    /**
+     * Gives transactions without an account the default one, looked up once per restore. Without a
+     * default account those transactions are left out.
+     */
+    private List<Transaction> withAccounts(List<Transaction> transactions) {
+        List<Transaction> result = new ArrayList<>(transactions.size());
+        int skipped = 0;
+        for (Transaction transaction : transactions) {
+            if (transaction.getAccountId() == null) {
+                if (!defaultAccountResolved) {
+                    Account defaultAccount = database.accountDao().getDefaultAccountSync();
+                    defaultAccountId = defaultAccount != null ? defaultAccount.getId() : null;
+                    defaultAccountResolved = true;
                 }
-
-                if (!accountExists) {
-                    database.accountDao().insert(account);
-                    Log.i("Account", "Inserted account: " + name + " with ID: " + originalId);
-                } else {
-                    Log.i("Account", "Account with ID " + originalId + " already exists: " + name);
+                if (defaultAccountId == null) {
+                    skipped++;
+                    continue;
                 }
+                transaction.setAccountId(defaultAccountId);
             }
-        } catch (ParseException e) {
-            Log.e(TAG, "Error parsing account date", e);
-        } catch (Exception e) {
-            Log.e(TAG, "Error processing account", e);
+            result.add(transaction);
+        }
+        if (skipped > 0) {
+            Log.i("Transaction", "No default account, not inserting " + skipped + " transactions without an account");
         }
+        return result;
+    }
+
+    // Inserts what is still pending and forgets the lookups, the next restore may follow a clear
+    private void finishRestore() {
+        flushRestored();
+        // Restored hashes are not recorded one by one, a cache seeded during the restore would miss them
+        SmsHashCache.getInstance(database).invalidate();
+        categoryNames = null;
+        accountIds = null;
+        defaultAccountId = null;
+        defaultAccountResolved = false;
     }
 
     public static void exportDatabaseDataToLocal(Context context, AppDatabase database) {
         try {
-            StringBuilder data = new StringBuilder();
-            data.append("=== Database Export ").append(new Date()).append(" ===\n\n");
-
-            // Export categories
-            data.append("\n=== CATEGORIES ===\n");
-            List<Category> categories = database.categoryDao().getAllCategoriesSync();
-            for (Category c : categories) {
-                data.append(String.format("ID: %d\n", c.getId()));
-                data.append(String.format("Name: %s\n", c.getName()));
-                data.append(String.format("Type: %s\n", c.getType()));
-                data.append("---\n");
-            }
-
-            // Export recurring payments
-            data.append("\n=== RECURRING PAYMENTS ===\n");
-            List<RecurringPayment> payments = database.recurringPaymentDao().getAllRecurringPaymentsSync();
-            for (RecurringPayment p : payments) {
-                data.append(String.format("ID: %d\n", p.getId()));
-                data.append(String.format("Name: %s\n", p.getName()));
-                data.append(String.format("Amount: %.2f\n", p.getAmount()));
-                data.append(String.format("Due Day: %d\n", p.getDueDay()));
-                data.append(String.format("Expiry Date: %s\n", p.getExpiryDate()));
-                data.append(String.format("Is Completed: %b\n", p.isCompleted()));
-                data.append(String.format("Last Completed Date: %s\n", p.getLastCompletedDate()));
-                data.append("---\n");
-            }
-
-            // Export accounts
-            data.append("\n=== ACCOUNTS ===\n");
-            List<Account> accounts = database.accountDao().getAllAccountsSync();
-            if (accounts != null) {
-                for (Account a : accounts) {
-                    data.append(String.format("ID: %d\n", a.getId()));
-                    data.append(String.format("Name: %s\n", a.getName()));
-                    data.append(String.format("Account Number: %s\n", a.getAccountNumber()));
-                    data.append(String.format("Bank: %s\n", a.getBank()));
-                    data.append(String.format("Expiry Date: %s\n", a.getExpiryDate()));
-                    data.append(String.format("Description: %s\n", a.getDescription()));
-                    data.append(String.format("Is Default: %b\n", a.isDefault()));
-                    data.append("---\n");
-                }
-            }
-
-            // Export transactions (last two months only)
-            data.append("=== TRANSACTIONS ===\n");
-            Date twoMonthsAgo = new Date(System.currentTimeMillis() - (60L * 24 * 60 * 60 * 1000 * 60)); // 60 days ago
-            List<Transaction> transactions = database.transactionDao().getFilteredTransactions(
-                    twoMonthsAgo, new Date(), null, null, null, null, null, null, null, null);
-            for (Transaction t : transactions) {
-                data.append(String.format("ID: %d\n", t.getId()));
-                data.append(String.format("Amount: %.2f\n", t.getAmount()));
-                data.append(String.format("Description: %s\n", t.getDescription()));
-                data.append(String.format("Date: %s\n", t.getDate()));
-                data.append(String.format("Transaction Type: %s\n", t.getTransactionType()));
-                data.append(String.format("Receiver: %s\n", t.getReceiverName()));
-                data.append(String.format("Category: %s\n", t.getCategory()));
-                data.append(String.format("Is excluded from summary: %s\n", t.isExcludedFromSummary()));
-                data.append(String.format("Account id: %s\n", t.getAccountId()));
-                data.append(String.format("Linked Payment ID: %s\n", t.getLinkedRecurringPaymentId()));
-                data.append(String.format("SMS Body: %s\n", t.getSmsBody()));
-                data.append(String.format("SMS Sender: %s\n", t.getSmsSender()));
-                data.append(String.format("SMS Hash: %s\n", t.getSmsHash()));
-                data.append("---\n");
-            }
-
-            // Save to file
             File exportDir = new File(context.getFilesDir(), "database_exports");
             if (!exportDir.exists()) {
                 Log.i("DatabaseExport", "directory do not exist. Creating it");
                 exportDir.mkdirs();
             }
 
-            String fileName = "database_export_" + System.currentTimeMillis() + ".txt";
+            String fileName = "database_export_" + System.currentTimeMillis() + ".bin";
             File exportFile = new File(exportDir, fileName);
-
-            try (FileWriter writer = new FileWriter(exportFile)) {
-                writer.write(data.toString());
+            try {
+                writeBackup(exportFile, database);
+            } catch (IOException | RuntimeException e) {
+                // An incomplete export must not be taken for a backup
+                exportFile.delete();
+                throw e;
             }
 
             if (exportFile.exists()) {
@@ -445,6 +280,25 @@ public class BackupDataLoader {
         }
     }
 
+    // Writes every entity in restore order, transactions of the last 60 days only
+    private static void writeBackup(File file, AppDatabase database) throws IOException {
+        int count;
+        try (BackupWriter writer = BackupWriter.open(file, BACKUP_CODEC)) {
+            writer.writeCategories(database.categoryDao().getAllCategoriesSync());
+            writer.writeRecurringPayments(database.recurringPaymentDao().getAllRecurringPaymentsSync());
+            List<Account> accounts = database.accountDao().getAllAccountsSync();
+            writer.writeAccounts(accounts != null ? accounts : Collections.emptyList());
+
+            long now = System.currentTimeMillis();
+            long twoMonthsAgo = now - (60L * 24 * 60 * 60 * 1000 * 60); // 60 days ago
+            try (Cursor cursor = database.transactionDao().getTransactionsForExport(twoMonthsAgo, now)) {
+                count = writer.writeTransactions(cursor);
+            }
+            writer.finish();
+        }
+        Log.i("DatabaseExport", "Exported " + count + " transactions in " + file.length() + " bytes");
+    }
+
     public static void exportDatabaseDataToGoogleDrive(Context context, AppDatabase database,
             GoogleDriveService.DriveCallback callback) {
         new Thread(() -> {
@@ -463,18 +317,29 @@ public class BackupDataLoader {
                 driveService.createDateSpecificBackupFolder(new GoogleDriveService.DriveCallback() {
                     @Override
                     public void onSuccess(String folderId) {
+                        File tempFile = new File(context.getCacheDir(), BACKUP_FILE_NAME);
                         try {
-                            uploadEntity(context, folderId, driveService, "CATEGORIES", database, "categories.txt");
-                            uploadEntity(context, folderId, driveService, "RECURRING PAYMENTS", database,
-                                    "recurring_payments.txt");
-                            uploadEntity(context, folderId, driveService, "ACCOUNTS", database, "accounts.txt");
-                            uploadEntity(context, folderId, driveService, "TRANSACTIONS", database, "transactions.txt");
-
-                            callback.onSuccess("Backup completed successfully");
+                            writeBackup(tempFile, database);
                         } catch (Exception e) {
-                            Log.e(TAG, "Error during multi-file upload", e);
+                            tempFile.delete();
+                            Log.e(TAG, "Error writing backup", e);
                             callback.onError("Backup failed: " + e.getMessage());
+                            return;
                         }
+                        driveService.uploadFileToFolder(folderId, tempFile, "application/octet-stream",
+                                new GoogleDriveService.DriveCallback() {
+                                    @Override
+                                    public void onSuccess(String fileId) {
+                                        tempFile.delete();
+                                        callback.onSuccess("Backup completed successfully");
+                                    }
+
+                                    @Override
+                                    public void onError(String error) {
+                                        tempFile.delete();
+                                        callback.onError("Backup failed: " + error);
+                                    }
+                                });
                     }
 
                     @Override
@@ -490,76 +355,6 @@ public class BackupDataLoader {
         }).start();
     }
 
-    private static void uploadEntity(Context context, String folderId, GoogleDriveService driveService,
-            String entityName, AppDatabase database, String fileName) throws IOException {
-        StringBuilder data = new StringBuilder();
-        // Basic logic to get data based on entity name - Simplified for brevity, assume
-        // similar logic to before but separated
-        if (entityName.equals("CATEGORIES")) {
-            List<Category> categories = database.categoryDao().getAllCategoriesSync();
-            for (Category c : categories) {
-                data.append(String.format("ID: %d\nName: %s\nType: %s\n---\n", c.getId(), c.getName(), c.getType()));
-            }
-        } else if (entityName.equals("RECURRING PAYMENTS")) {
-            List<RecurringPayment> payments = database.recurringPaymentDao().getAllRecurringPaymentsSync();
-            for (RecurringPayment p : payments) {
-                data.append(String.format(
-                        "ID: %d\nName: %s\nAmount: %.2f\nDue Day: %d\nExpiry Date: %s\nIs Completed: %b\nLast Completed Date: %s\n---\n",
-                        p.getId(), p.getName(), p.getAmount(), p.getDueDay(), p.getExpiryDate(), p.isCompleted(),
-                        p.getLastCompletedDate()));
-            }
-        } else if (entityName.equals("ACCOUNTS")) {
-            List<Account> accounts = database.accountDao().getAllAccountsSync();
-            if (accounts != null) {
-                for (Account a : accounts) {
-                    data.append(String.format(
-                            "ID: %d\nName: %s\nAccount Number: %s\nBank: %s\nExpiry Date: %s\nDescription: %s\nIs Default: %b\n---\n",
-                            a.getId(), a.getName(), a.getAccountNumber(), a.getBank(), a.getExpiryDate(),
-                            a.getDescription(), a.isDefault()));
-                }
-            }
-        } else if (entityName.equals("TRANSACTIONS")) {
-            Date twoMonthsAgo = new Date(System.currentTimeMillis() - (60L * 24 * 60 * 60 * 1000 * 60));
-            List<Transaction> transactions = database.transactionDao().getFilteredTransactions(
-                    twoMonthsAgo, new Date(), null, null, null, null, null, null, null, null);
-            for (Transaction t : transactions) {
-                data.append(String.format(
-                        "ID: %d\nAmount: %.2f\nDescription: %s\nDate: %s\nTransaction Type: %s\nReceiver: %s\nCategory: %s\nIs excluded from summary: %s\nAccount id: %s\nLinked Payment ID: %s\nSMS Body: %s\nSMS Sender: %s\nSMS Hash: %s\n---\n",
-                        t.getId(), t.getAmount(), t.getDescription(), t.getDate(), t.getTransactionType(),
-                        t.getReceiverName(), t.getCategory(), t.isExcludedFromSummary(), t.getAccountId(),
-                        t.getLinkedRecurringPaymentId(), t.getSmsBody(), t.getSmsSender(), t.getSmsHash()));
-            }
-        }
-
-        File tempFile = new File(context.getCacheDir(), fileName);
-        try (FileWriter writer = new FileWriter(tempFile)) {
-            writer.write(data.toString());
-        }
-
-        // We can't wait for the callback here easily in this structure without
-        // CountDownLatch or similar
-        // For simplicity in this agent environment, we will fire and forget the
-        // individual uploads or nest them
-        // BUT since we need to ensure all are done, let's use a simpler approach:
-        // We will just call the upload method. The service handles the thread.
-        // Realistically, we should chain these or use Futures.
-        // Given the complexity constraint, let's just trigger them.
-        driveService.uploadFileToFolder(folderId, tempFile, "text/plain", new GoogleDriveService.DriveCallback() {
-            @Override
-            public void onSuccess(String msg) {
-                if (tempFile.exists())
-                    tempFile.delete();
-            }
-
-            @Override
-            public void onError(String err) {
-                if (tempFile.exists())
-                    tempFile.delete();
-                Log.e(TAG, "Failed to upload " + fileName);
-            }
-        });
-    }
-
     public static void loadBackupDataFromGoogleDrive(Context context, GoogleDriveService.DriveCallback callback) {
         new Thread(() -> {
             try {
@@ -589,19 +384,32 @@ public class BackupDataLoader {
                                     BackupDataLoader loader = new BackupDataLoader(context);
 
                                     Log.i(TAG, "Starting restore process...");
-                                    // Download and process in order
-                                    Log.i(TAG, "Clearing all tables...");
-                                    AppDatabase.getDatabase(context).clearAllTables();
-                                    Log.i(TAG, "Tables cleared.");
-
-                                    processFileIfExists(context, driveService, fileMap, "categories.txt", "CATEGORIES",
-                                            loader);
-                                    processFileIfExists(context, driveService, fileMap, "recurring_payments.txt",
-                                            "RECURRING PAYMENTS", loader);
-                                    processFileIfExists(context, driveService, fileMap, "accounts.txt", "ACCOUNTS",
-                                            loader);
-                                    processFileIfExists(context, driveService, fileMap, "transactions.txt",
-                                            "TRANSACTIONS", loader);
+                                    if (fileMap.containsKey(BACKUP_FILE_NAME)) {
+                                        File backupFile = new File(context.getCacheDir(), "restore_" + BACKUP_FILE_NAME);
+                                        try {
+                                            if (!downloadFile(driveService, fileMap.get(BACKUP_FILE_NAME), backupFile)) {
+                                                callback.onError("Restore failed: could not download " + BACKUP_FILE_NAME);
+                                                return;
+                                            }
+                                            // A corrupt download fails here, before the local data is cleared
+                                            BackupReader.verify(backupFile);
+                                            clearLocalData(context);
+                                            loader.loadBackupFromFile(backupFile);
+                                        } finally {
+                                            backupFile.delete();
+                                        }
+                                    } else {
+                                        // Backups made before the binary format, one text file per entity
+                                        clearLocalData(context);
+                                        processFileIfExists(context, driveService, fileMap, "categories.txt", LegacyBackupReader.CATEGORIES,
+                                                loader);
+                                        processFileIfExists(context, driveService, fileMap, "recurring_payments.txt",
+                                                LegacyBackupReader.RECURRING_PAYMENTS, loader);
+                                        processFileIfExists(context, driveService, fileMap, "accounts.txt", LegacyBackupReader.ACCOUNTS,
+                                                loader);
+                                        processFileIfExists(context, driveService, fileMap, "transactions.txt",
+                                                LegacyBackupReader.TRANSACTIONS, loader);
+                                    }
 
                                     Log.i(TAG, "Restore process completed.");
                                     callback.onSuccess("Restore completed successfully");
@@ -631,6 +439,37 @@ public class BackupDataLoader {
         }).start();
     }
 
+    private static void clearLocalData(Context context) {
+        Log.i(TAG, "Clearing all tables...");
+        AppDatabase database = AppDatabase.getDatabase(context);
+        database.clearAllTables();
+        SmsHashCache.getInstance(database).invalidate();
+        SmsScanCheckpoint.clearAll(context);
+        Log.i(TAG, "Tables cleared.");
+    }
+
+    // Blocks until the download finished, call it off the Drive service's thread
+    private static boolean downloadFile(GoogleDriveService driveService, String fileId, File destination)
+            throws InterruptedException {
+        final java.util.concurrent.CountDownLatch latch = new java.util.concurrent.CountDownLatch(1);
+        final boolean[] downloaded = new boolean[1];
+        driveService.downloadFile(fileId, destination, new GoogleDriveService.DriveCallback() {
+            @Override
+            public void onSuccess(String msg) {
+                downloaded[0] = true;
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(String err) {
+                Log.e(TAG, "Failed to download " + destination.getName() + ": " + err);
+                latch.countDown();
+            }
+        });
+        latch.await();
+        return downloaded[0];
+    }
+
     private static void processFileIfExists(Context context, GoogleDriveService driveService,
             java.util.Map<String, String> fileMap, String fileName, String sectionName, BackupDataLoader loader) {
         if (fileMap.containsKey(fileName)) {
@@ -679,22 +518,36 @@ public class BackupDataLoader {
         }
     }
 
-    public void loadSingleEntityFromFile(File file, String sectionName) {
-        try (BufferedReader reader = new BufferedReader(new java.io.FileReader(file))) {
-            String line;
-            StringBuilder currentEntity = new StringBuilder();
-            while ((line = reader.readLine()) != null) {
-                if (line.equals("---")) {
-                    processEntity(sectionName, currentEntity.toString());
-                    currentEntity = new StringBuilder();
-                } else {
-                    currentEntity.append(line).append("\n");
-                }
+    /**
+     * Restores a binary backup written by BackupWriter, check it with BackupReader.verify first.
+     * Local exports made before the binary format, text with a header line per section, are restored
+     * as well.
+     */
+    public void loadBackupFromFile(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), READ_BUFFER_SIZE)) {
+            if (BackupReader.isBinary(in)) {
+                BackupReader.read(in, restoreSink);
+            } else {
+                LegacyBackupReader.read(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8),
+                        READ_BUFFER_SIZE), null, restoreSink);
             }
-            if (currentEntity.length() > 0)
-                processEntity(sectionName, currentEntity.toString());
+        } finally {
+            finishRestore();
+        }
+    }
+
+    /**
+     * Restores one section file of a Drive backup made before the binary format
+     * @param sectionName One of the LegacyBackupReader section names
+     */
+    public void loadSingleEntityFromFile(File file, String sectionName) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            LegacyBackupReader.read(reader, sectionName, restoreSink);
         } catch (IOException e) {
             Log.e(TAG, "Error reading entity file " + sectionName, e);
+        } finally {
+            finishRestore();
         }
     }
 }
\ No newline at end of file
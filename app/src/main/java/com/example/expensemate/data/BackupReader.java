@@ -0,0 +1,329 @@
+package com.example.expensemate.data;
+
+import com.example.expensemate.utils.SmsCompression;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a backup written by BackupWriter, see there for the format, and hands every entity to a
+ * Sink in the order they were written. Legacy text backups are read by BackupDataLoader.
+ */
+public class BackupReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Far above any real record, guards against allocating for a corrupt length
+    private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+    public interface Sink {
+        void onCategory(Category category);
+
+        void onRecurringPayment(RecurringPayment payment);
+
+        void onAccount(Account account);
+
+        void onTransaction(Transaction transaction);
+    }
+
+    private final InputStream in;
+    private final List<String> dictionary = new ArrayList<>();
+    private byte[] record = new byte[256]; // Fields of the record being read
+    private int recordLength;
+    private int position;
+    private long previousDate;
+
+    private BackupReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Checks the footer checksum of a backup file against its contents, call it before restoring
+     * anything from the file. Version 1 backups have no checksum and always pass.
+     * @throws IOException if the file is not a binary backup or is corrupt
+     */
+    public static void verify(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+            if (readVersion(in) < BackupWriter.CHECKSUM_VERSION) {
+                return;
+            }
+        }
+        long contentLength = file.length() - 4;
+        if (contentLength < BackupWriter.MAGIC.length) {
+            throw new EOFException("Backup is truncated");
+        }
+        CRC32 checksum = new CRC32();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            long remaining = contentLength;
+            while (remaining > 0) {
+                int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    throw new EOFException("Backup is truncated");
+                }
+                checksum.update(buffer, 0, n);
+                remaining -= n;
+            }
+            int footer = 0;
+            for (int i = 0; i < 4; i++) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Backup is truncated");
+                }
+                footer = (footer << 8) | b;
+            }
+            if (footer != (int) checksum.getValue()) {
+                throw new IOException("Backup checksum mismatch, the file is corrupt");
+            }
+        }
+    }
+
+    /**
+     * Tells a binary backup from a legacy text one by its first bytes, the stream must support mark
+     * and is reset to where it was.
+     */
+    public static boolean isBinary(InputStream in) throws IOException {
+        byte[] magic = new byte[BackupWriter.MAGIC.length];
+        in.mark(magic.length);
+        int read = 0;
+        int n;
+        while (read < magic.length && (n = in.read(magic, read, magic.length - read)) >= 0) {
+            read += n;
+        }
+        in.reset();
+        return Arrays.equals(magic, BackupWriter.MAGIC);
+    }
+
+    /**
+     * Reads a whole backup, the stream is left open. Does not check the footer, see verify.
+     * @throws IOException if the stream is not a binary backup, is truncated, or is of a newer version
+     */
+    public static void read(InputStream in, Sink sink) throws IOException {
+        InputStream buffered = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, BUFFER_SIZE);
+        InputStream payload = buffered;
+        if (readVersion(buffered) >= BackupWriter.CHECKSUM_VERSION) {
+            int codec = buffered.read();
+            if (codec < 0) {
+                throw new EOFException("Backup is truncated");
+            }
+            payload = new BufferedInputStream(BackupCodec.fromId(codec).decode(buffered), BUFFER_SIZE);
+        }
+        new BackupReader(payload).readSections(sink);
+    }
+
+    private static long readVersion(InputStream in) throws IOException {
+        byte[] magic = new byte[BackupWriter.MAGIC.length];
+        readFully(in, magic, magic.length);
+        if (!Arrays.equals(magic, BackupWriter.MAGIC)) {
+            throw new IOException("Not a binary backup");
+        }
+        long version = readVarint(in);
+        if (version > BackupWriter.FORMAT_VERSION) {
+            throw new IOException("Backup format " + version + " is newer than this app supports");
+        }
+        return version;
+    }
+
+    private void readSections(Sink sink) throws IOException {
+        int section;
+        while ((section = in.read()) != BackupWriter.END) {
+            if (section < 0) {
+                throw new EOFException("Backup ends without its end marker");
+            }
+            while (nextRecord()) {
+                switch (section) {
+                    case BackupWriter.SECTION_CATEGORIES:
+                        sink.onCategory(readCategory());
+                        break;
+                    case BackupWriter.SECTION_RECURRING_PAYMENTS:
+                        sink.onRecurringPayment(readRecurringPayment());
+                        break;
+                    case BackupWriter.SECTION_ACCOUNTS:
+                        sink.onAccount(readAccount());
+                        break;
+                    case BackupWriter.SECTION_TRANSACTIONS:
+                        sink.onTransaction(readTransaction());
+                        break;
+                    default:
+                        // Written by a newer app, its records are skipped
+                        break;
+                }
+            }
+        }
+    }
+
+    private Category readCategory() throws IOException {
+        long id = getVarint();
+        Category category = new Category(getDictionaryString(), getDictionaryString());
+        category.setId(id);
+        return category;
+    }
+
+    private RecurringPayment readRecurringPayment() throws IOException {
+        long flags = getVarint();
+        long id = getVarint();
+        String name = getString();
+        long amountPaise = getSignedVarint();
+        int dueDay = (int) getVarint();
+        Date expiryDate = (flags & BackupWriter.FLAG_HAS_EXPIRY_DATE) != 0 ? new Date(getSignedVarint()) : null;
+        RecurringPayment payment = new RecurringPayment(name, amountPaise, dueDay, expiryDate);
+        payment.setId(id);
+        payment.setCompleted((flags & BackupWriter.FLAG_COMPLETED) != 0);
+        if ((flags & BackupWriter.FLAG_HAS_LAST_COMPLETED_DATE) != 0) {
+            payment.setLastCompletedDate(new Date(getSignedVarint()));
+        }
+        return payment;
+    }
+
+    private Account readAccount() throws IOException {
+        long flags = getVarint();
+        long id = getVarint();
+        String name = getString();
+        String accountNumber = getString();
+        String bank = getDictionaryString();
+        Date expiryDate = (flags & BackupWriter.FLAG_HAS_EXPIRY_DATE) != 0 ? new Date(getSignedVarint()) : null;
+        Account account = new Account(name, accountNumber, bank, expiryDate, getString());
+        account.setId(id);
+        account.setDefault((flags & BackupWriter.FLAG_DEFAULT) != 0);
+        return account;
+    }
+
+    private Transaction readTransaction() throws IOException {
+        long flags = getVarint();
+        Transaction transaction = new Transaction();
+        transaction.setId(getVarint());
+        transaction.setAmountPaise(getSignedVarint());
+        transaction.setDescription(getString());
+        if ((flags & BackupWriter.FLAG_HAS_DATE) != 0) {
+            previousDate += getSignedVarint();
+            transaction.setDate(new Date(previousDate));
+        }
+        transaction.setTransactionType(getDictionaryString());
+        transaction.setReceiverName(getDictionaryString());
+        transaction.setCategory(getDictionaryString());
+        transaction.setExcludedFromSummary((flags & BackupWriter.FLAG_EXCLUDED_FROM_SUMMARY) != 0);
+        if ((flags & BackupWriter.FLAG_HAS_ACCOUNT) != 0) {
+            transaction.setAccountId(getVarint());
+        }
+        if ((flags & BackupWriter.FLAG_HAS_LINKED_PAYMENT) != 0) {
+            transaction.setLinkedRecurringPaymentId(getVarint());
+        }
+        if ((flags & BackupWriter.FLAG_HAS_SMS) != 0) {
+            int length = (int) getVarint();
+            transaction.setSmsBody(SmsCompression.decompress(Arrays.copyOfRange(record, take(length), position)));
+            transaction.setSmsSender(getDictionaryString());
+        }
+        if ((flags & BackupWriter.FLAG_HAS_SMS_SENDER) != 0) {
+            transaction.setSmsSender(getString());
+        }
+        return transaction;
+    }
+
+    // Loads the next record of the section, false at its end
+    private boolean nextRecord() throws IOException {
+        long length = readVarint(in);
+        if (length == 0) {
+            return false;
+        }
+        if (length > MAX_RECORD_LENGTH) {
+            throw new IOException("Corrupt backup record length " + length);
+        }
+        if (length > record.length) {
+            record = new byte[(int) Math.max(length, record.length * 2L)];
+        }
+        recordLength = (int) length;
+        position = 0;
+        readFully(in, record, recordLength);
+        return true;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, read, length - read);
+            if (n < 0) {
+                throw new EOFException("Backup is truncated");
+            }
+            read += n;
+        }
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Backup is truncated");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt backup varint");
+    }
+
+    private long getVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= recordLength) {
+                throw new IOException("Backup record is truncated");
+            }
+            int b = record[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt backup varint");
+    }
+
+    private long getSignedVarint() throws IOException {
+        long value = getVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private String getString() throws IOException {
+        long length = getVarint();
+        if (length == 0) {
+            return null;
+        }
+        int start = take(length - 1);
+        return new String(record, start, position - start, StandardCharsets.UTF_8);
+    }
+
+    private String getDictionaryString() throws IOException {
+        long reference = getVarint();
+        if (reference == 0) {
+            return null;
+        }
+        if (reference == 1) {
+            int start = take(getVarint());
+            String value = new String(record, start, position - start, StandardCharsets.UTF_8);
+            dictionary.add(value);
+            return value;
+        }
+        if (reference - 2 >= dictionary.size()) {
+            throw new IOException("Corrupt backup string reference " + reference);
+        }
+        return dictionary.get((int) (reference - 2));
+    }
+
+    // Skips length bytes of the record and returns where they start
+    private int take(long length) throws IOException {
+        if (length < 0 || length > recordLength - position) {
+            throw new IOException("Backup record is truncated");
+        }
+        int start = position;
+        position += (int) length;
+        return start;
+    }
+}
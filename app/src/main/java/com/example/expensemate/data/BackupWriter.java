@@ -0,0 +1,310 @@
+package com.example.expensemate.data;
+
+import android.database.Cursor;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes a backup in the binary format read by BackupReader, straight to a buffered stream.
+ * Transactions are streamed from a cursor, so an export holds one row in memory whatever the size
+ * of the history.
+ *
+ * Layout: the MAGIC bytes, the FORMAT_VERSION varint and the BackupCodec id byte, then the payload
+ * encoded by the codec, then a footer of the big-endian CRC32 of every byte before it. Version 1
+ * backups have neither codec nor footer.
+ * The payload holds sections of a tag byte followed by records, each record a varint byte length
+ * and its fields. A record length of 0 ends a section and a tag of END ends the payload. Readers
+ * skip sections with unknown tags and fields past the ones they know, so fields may be appended to
+ * a record without a new version. Appended strings must not go through the dictionary, a reader
+ * skipping them would miss the entries they add.
+ * END and the footer are only written by finish, a backup closed without it, say because a write
+ * threw, is rejected by BackupReader.verify.
+ *
+ * Fields: ids and counts are unsigned varints, amounts and dates zigzag varints of paise and epoch
+ * millis, transaction dates as the difference to the previous transaction. Strings are a varint of
+ * byte length + 1 and UTF-8 bytes, 0 for null. Repeating strings such as categories, receivers and
+ * senders go through a dictionary shared by the whole backup: 0 is null, 1 a new entry whose string
+ * follows, n + 2 the n-th entry. SMS bodies are copied as stored in transaction_sms, compressed by
+ * SmsCompression, so its dictionary is part of the format.
+ */
+public class BackupWriter implements Closeable {
+    static final byte[] MAGIC = {'E', 'M', 'B', 'K'};
+    static final int FORMAT_VERSION = 2;
+    // First version with a codec id and a checksum footer
+    static final int CHECKSUM_VERSION = 2;
+
+    static final int END = 0;
+    static final int SECTION_CATEGORIES = 1;
+    static final int SECTION_RECURRING_PAYMENTS = 2;
+    static final int SECTION_ACCOUNTS = 3;
+    static final int SECTION_TRANSACTIONS = 4;
+
+    // Record flags
+    static final int FLAG_EXCLUDED_FROM_SUMMARY = 1;
+    static final int FLAG_HAS_ACCOUNT = 1 << 1;
+    static final int FLAG_HAS_LINKED_PAYMENT = 1 << 2;
+    static final int FLAG_HAS_SMS = 1 << 3;
+    static final int FLAG_HAS_DATE = 1 << 4;
+    static final int FLAG_HAS_EXPIRY_DATE = 1 << 5;
+    static final int FLAG_HAS_LAST_COMPLETED_DATE = 1 << 6;
+    static final int FLAG_COMPLETED = 1 << 7;
+    static final int FLAG_DEFAULT = 1 << 8;
+    // Sender of an SMS without a body, FLAG_HAS_SMS carries the sender of the others
+    static final int FLAG_HAS_SMS_SENDER = 1 << 9;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream file;
+    private final CRC32 checksum = new CRC32();
+    private final OutputStream out; // Payload, encoded into file
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private byte[] record = new byte[256]; // Fields of the record being written
+    private int recordLength;
+    private long previousDate;
+
+    public BackupWriter(OutputStream file, BackupCodec codec) throws IOException {
+        this.file = file;
+        OutputStream checked = new CheckedOutputStream(file, checksum);
+        checked.write(MAGIC);
+        writeVarint(checked, FORMAT_VERSION);
+        checked.write(codec.getId());
+        // Closing the payload finishes the codec but leaves the file open for the footer
+        this.out = new BufferedOutputStream(codec.encode(new FilterOutputStream(checked) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }), BUFFER_SIZE);
+    }
+
+    public static BackupWriter open(File file, BackupCodec codec) throws IOException {
+        return new BackupWriter(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE), codec);
+    }
+
+    public void writeCategories(List<Category> categories) throws IOException {
+        out.write(SECTION_CATEGORIES);
+        for (Category c : categories) {
+            putVarint(c.getId());
+            putDictionaryString(c.getName());
+            putDictionaryString(c.getType());
+            endRecord();
+        }
+        endSection();
+    }
+
+    public void writeRecurringPayments(List<RecurringPayment> payments) throws IOException {
+        out.write(SECTION_RECURRING_PAYMENTS);
+        for (RecurringPayment p : payments) {
+            int flags = (p.isCompleted() ? FLAG_COMPLETED : 0)
+                    | (p.getExpiryDate() != null ? FLAG_HAS_EXPIRY_DATE : 0)
+                    | (p.getLastCompletedDate() != null ? FLAG_HAS_LAST_COMPLETED_DATE : 0);
+            putVarint(flags);
+            putVarint(p.getId());
+            putString(p.getName());
+            putSignedVarint(p.getAmountPaise());
+            putVarint(p.getDueDay());
+            putDate(p.getExpiryDate());
+            putDate(p.getLastCompletedDate());
+            endRecord();
+        }
+        endSection();
+    }
+
+    public void writeAccounts(List<Account> accounts) throws IOException {
+        out.write(SECTION_ACCOUNTS);
+        for (Account a : accounts) {
+            int flags = (a.isDefault() ? FLAG_DEFAULT : 0) | (a.getExpiryDate() != null ? FLAG_HAS_EXPIRY_DATE : 0);
+            putVarint(flags);
+            putVarint(a.getId());
+            putString(a.getName());
+            putString(a.getAccountNumber());
+            putDictionaryString(a.getBank());
+            putDate(a.getExpiryDate());
+            putString(a.getDescription());
+            endRecord();
+        }
+        endSection();
+    }
+
+    /**
+     * Writes every row of a TransactionDao.getTransactionsForExport cursor
+     * @return The number of transactions written
+     */
+    public int writeTransactions(Cursor cursor) throws IOException {
+        int id = cursor.getColumnIndexOrThrow("id");
+        int amountPaise = cursor.getColumnIndexOrThrow("amountPaise");
+        int description = cursor.getColumnIndexOrThrow("description");
+        int date = cursor.getColumnIndexOrThrow("date");
+        int transactionType = cursor.getColumnIndexOrThrow("transactionType");
+        int receiverName = cursor.getColumnIndexOrThrow("receiverName");
+        int category = cursor.getColumnIndexOrThrow("category");
+        int excludedFromSummary = cursor.getColumnIndexOrThrow("isExcludedFromSummary");
+        int accountId = cursor.getColumnIndexOrThrow("accountId");
+        int linkedRecurringPaymentId = cursor.getColumnIndexOrThrow("linkedRecurringPaymentId");
+        int compressedBody = cursor.getColumnIndexOrThrow("compressedBody");
+        int sender = cursor.getColumnIndexOrThrow("sender");
+
+        out.write(SECTION_TRANSACTIONS);
+        int count = 0;
+        while (cursor.moveToNext()) {
+            int flags = (cursor.getInt(excludedFromSummary) != 0 ? FLAG_EXCLUDED_FROM_SUMMARY : 0)
+                    | (!cursor.isNull(accountId) ? FLAG_HAS_ACCOUNT : 0)
+                    | (!cursor.isNull(linkedRecurringPaymentId) ? FLAG_HAS_LINKED_PAYMENT : 0)
+                    | (!cursor.isNull(compressedBody) ? FLAG_HAS_SMS : 0)
+                    | (cursor.isNull(compressedBody) && !cursor.isNull(sender) ? FLAG_HAS_SMS_SENDER : 0)
+                    | (!cursor.isNull(date) ? FLAG_HAS_DATE : 0);
+            putVarint(flags);
+            putVarint(cursor.getLong(id));
+            putSignedVarint(cursor.getLong(amountPaise));
+            putString(cursor.getString(description));
+            if ((flags & FLAG_HAS_DATE) != 0) {
+                // Rows come newest first, neighbours are seconds to days apart
+                long millis = cursor.getLong(date);
+                putSignedVarint(millis - previousDate);
+                previousDate = millis;
+            }
+            putDictionaryString(cursor.getString(transactionType));
+            putDictionaryString(cursor.getString(receiverName));
+            putDictionaryString(cursor.getString(category));
+            if ((flags & FLAG_HAS_ACCOUNT) != 0) {
+                putVarint(cursor.getLong(accountId));
+            }
+            if ((flags & FLAG_HAS_LINKED_PAYMENT) != 0) {
+                putVarint(cursor.getLong(linkedRecurringPaymentId));
+            }
+            if ((flags & FLAG_HAS_SMS) != 0) {
+                putBytes(cursor.getBlob(compressedBody));
+                putDictionaryString(cursor.getString(sender));
+            }
+            if ((flags & FLAG_HAS_SMS_SENDER) != 0) {
+                putString(cursor.getString(sender));
+            }
+            endRecord();
+            count++;
+        }
+        endSection();
+        return count;
+    }
+
+    /**
+     * Ends the payload and writes the checksum footer, call it once every section is written
+     */
+    public void finish() throws IOException {
+        out.write(END);
+        out.close();
+        int crc = (int) checksum.getValue();
+        file.write(crc >>> 24);
+        file.write(crc >>> 16);
+        file.write(crc >>> 8);
+        file.write(crc);
+    }
+
+    /**
+     * Closes the file. Without finish the backup is left incomplete, the caller should delete it.
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private void endSection() throws IOException {
+        writeVarint(out, 0);
+    }
+
+    // Writes the fields put since the previous record, prefixed by their length
+    private void endRecord() throws IOException {
+        writeVarint(out, recordLength);
+        out.write(record, 0, recordLength);
+        recordLength = 0;
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private void putDate(Date date) {
+        if (date != null) {
+            putSignedVarint(date.getTime());
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            putVarint(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarint(bytes.length + 1L);
+        putRaw(bytes);
+    }
+
+    private void putBytes(byte[] value) {
+        putVarint(value.length);
+        putRaw(value);
+    }
+
+    private void putDictionaryString(String value) {
+        if (value == null) {
+            putVarint(0);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            putVarint(index + 2L);
+            return;
+        }
+        dictionary.put(value, dictionary.size());
+        putVarint(1);
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarint(bytes.length);
+        putRaw(bytes);
+    }
+
+    private void putSignedVarint(long value) {
+        putVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void putVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            record[recordLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        record[recordLength++] = (byte) value;
+    }
+
+    private void putRaw(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, record, recordLength, bytes.length);
+        recordLength += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (recordLength + extra > record.length) {
+            record = Arrays.copyOf(record, Math.max(record.length * 2, recordLength + extra));
+        }
+    }
+}
@@ -20,9 +20,15 @@ public interface CategoryDao {
     @Query("SELECT * FROM categories WHERE name = :name ORDER BY name ASC")
     List<Category> getCategoriesByName(String name);
 
+    @Query("SELECT name FROM categories")
+    List<String> getAllCategoryNames();
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertCategory(Category category);
 
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertCategories(List<Category> categories);
+
     @Update
     void updateCategory(Category category);
 
@@ -2,11 +2,11 @@ package com.example.expensemate.data;
 
 public class CategorySum {
     private String category;
-    private double total;
+    private long totalPaise;
 
-    public CategorySum(String category, double total) {
+    public CategorySum(String category, long totalPaise) {
         this.category = category;
-        this.total = total;
+        this.totalPaise = totalPaise;
     }
 
     public String getCategory() {
@@ -17,11 +17,11 @@ public class CategorySum {
         this.category = category;
     }
 
-    public double getTotal() {
-        return total;
+    public long getTotalPaise() {
+        return totalPaise;
     }
 
-    public void setTotal(double total) {
-        this.total = total;
+    public void setTotalPaise(long totalPaise) {
+        this.totalPaise = totalPaise;
     }
 } 
\ No newline at end of file
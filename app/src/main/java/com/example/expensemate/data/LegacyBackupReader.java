@@ -0,0 +1,297 @@
+package com.example.expensemate.data;
+
+import android.util.Log;
+
+import com.example.expensemate.utils.MoneyUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Reads the text backups made before BackupWriter and hands every entity to a BackupReader.Sink.
+ * The text is read a line at a time and each field goes straight into the entity being read, so a
+ * restore holds one entity in memory whatever the size of the file.
+ *
+ * Format: sections start with a "=== NAME ===" line, entities in a section are separated by "---"
+ * lines and hold a "Key: value" line per field, "null" for null values. Drive backups of that time
+ * keep every section in a file of its own, without the header line. Lines without ": " are skipped
+ * and an entity with a field that does not parse is skipped whole.
+ */
+public class LegacyBackupReader {
+    private static final String TAG = "LegacyBackupReader";
+
+    public static final String TRANSACTIONS = "TRANSACTIONS";
+    public static final String CATEGORIES = "CATEGORIES";
+    public static final String RECURRING_PAYMENTS = "RECURRING PAYMENTS";
+    public static final String ACCOUNTS = "ACCOUNTS";
+
+    private static final String SECTION_PREFIX = "=== ";
+    private static final String SECTION_SUFFIX = " ===";
+    private static final String SEPARATOR = "---";
+
+    private final BackupReader.Sink sink;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+    private String section;
+    private boolean inEntity; // A field of the current entity has been read
+    private boolean skipEntity;
+
+    // Entity being read, only the ones of the current section are in use
+    private Transaction transaction;
+    private RecurringPayment payment;
+    private long id;
+    private String name;
+    private String type;
+    private String accountNumber;
+    private String bank;
+    private Date expiryDate;
+    private String description;
+    private boolean isDefault;
+
+    private LegacyBackupReader(String section, BackupReader.Sink sink) {
+        this.section = section;
+        this.sink = sink;
+    }
+
+    /**
+     * Reads a whole text backup, the reader is left open
+     * @param section Section of the entities before the first header line, null if the text starts with one
+     */
+    public static void read(BufferedReader in, String section, BackupReader.Sink sink) throws IOException {
+        LegacyBackupReader reader = new LegacyBackupReader(section, sink);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith(SECTION_PREFIX) && line.endsWith(SECTION_SUFFIX)
+                    && line.length() >= SECTION_PREFIX.length() + SECTION_SUFFIX.length()) {
+                reader.endEntity();
+                reader.section = line.substring(SECTION_PREFIX.length(), line.length() - SECTION_SUFFIX.length());
+            } else if (line.equals(SEPARATOR)) {
+                reader.endEntity();
+            } else {
+                reader.readField(line);
+            }
+        }
+        reader.endEntity();
+    }
+
+    private void readField(String line) {
+        int separator = line.indexOf(": ");
+        if (separator < 0 || section == null || skipEntity) {
+            return;
+        }
+        String key = trim(line, 0, separator);
+        String value = trim(line, separator + 2, line.length());
+        if (!inEntity) {
+            startEntity();
+        }
+        try {
+            switch (section) {
+                case TRANSACTIONS:
+                    readTransactionField(key, value);
+                    break;
+                case CATEGORIES:
+                    readCategoryField(key, value);
+                    break;
+                case RECURRING_PAYMENTS:
+                    readRecurringPaymentField(key, value);
+                    break;
+                case ACCOUNTS:
+                    readAccountField(key, value);
+                    break;
+            }
+        } catch (ParseException | RuntimeException e) {
+            Log.e(TAG, "Skipping entity in section " + section + ", cannot read " + key, e);
+            skipEntity = true;
+        }
+    }
+
+    private void startEntity() {
+        inEntity = true;
+        transaction = null;
+        payment = null;
+        switch (section) {
+            case TRANSACTIONS:
+                transaction = new Transaction();
+                break;
+            case RECURRING_PAYMENTS:
+                payment = new RecurringPayment("", 0, 1, new Date());
+                break;
+            default:
+                id = -1;
+                name = "";
+                type = "";
+                accountNumber = "";
+                bank = "";
+                expiryDate = null;
+                description = "";
+                isDefault = false;
+                break;
+        }
+    }
+
+    private void endEntity() {
+        boolean complete = inEntity && !skipEntity;
+        inEntity = false;
+        skipEntity = false;
+        if (!complete) {
+            return;
+        }
+        switch (section) {
+            case TRANSACTIONS:
+                sink.onTransaction(transaction);
+                break;
+            case CATEGORIES:
+                if (!name.isEmpty() && !type.isEmpty()) {
+                    sink.onCategory(new Category(name, type));
+                }
+                break;
+            case RECURRING_PAYMENTS:
+                sink.onRecurringPayment(payment);
+                break;
+            case ACCOUNTS:
+                if (!name.isEmpty()) {
+                    Account account = new Account(name, accountNumber, bank, expiryDate, description);
+                    account.setDefault(isDefault);
+                    // Keep the original ID, transactions refer to it
+                    if (id != -1) {
+                        account.setId(id);
+                    }
+                    sink.onAccount(account);
+                }
+                break;
+        }
+    }
+
+    private void readTransactionField(String key, String value) throws ParseException {
+        switch (key) {
+            case "ID":
+                transaction.setId(Long.parseLong(value));
+                break;
+            case "Amount":
+                transaction.setAmountPaise(MoneyUtils.parseRupees(value));
+                break;
+            case "Description":
+                transaction.setDescription(value);
+                break;
+            case "Date":
+                transaction.setDate(dateFormat.parse(value));
+                break;
+            case "Transaction Type":
+                transaction.setTransactionType(value.isEmpty() ? "DEBIT" : value);
+                break;
+            case "Receiver":
+                transaction.setReceiverName(value);
+                break;
+            case "Category":
+                transaction.setCategory(value);
+                break;
+            case "Account id":
+                if (!value.equalsIgnoreCase("null")) {
+                    transaction.setAccountId(Long.parseLong(value));
+                }
+                break;
+            case "Is excluded from summary":
+                if (!value.equals("null")) {
+                    transaction.setExcludedFromSummary(Boolean.parseBoolean(value));
+                }
+                break;
+            case "Linked Payment ID":
+                if (!value.equals("null")) {
+                    transaction.setLinkedRecurringPaymentId(Long.parseLong(value));
+                }
+                break;
+            case "SMS Body":
+                if (!value.equals("null")) {
+                    transaction.setSmsBody(value);
+                }
+                break;
+            case "SMS Sender":
+                if (!value.equals("null")) {
+                    transaction.setSmsSender(value);
+                }
+                break;
+            // "SMS Hash" is not read, backups made before SmsFingerprint hold 32-bit hashes
+        }
+    }
+
+    private void readCategoryField(String key, String value) {
+        switch (key) {
+            case "Name":
+                name = value;
+                break;
+            case "Type":
+                type = value;
+                break;
+        }
+    }
+
+    private void readRecurringPaymentField(String key, String value) throws ParseException {
+        switch (key) {
+            case "ID":
+                payment.setId(Long.parseLong(value));
+                break;
+            case "Name":
+                payment.setName(value);
+                break;
+            case "Amount":
+                payment.setAmountPaise(MoneyUtils.parseRupees(value));
+                break;
+            case "Due Day":
+                payment.setDueDay(Integer.parseInt(value));
+                break;
+            case "Expiry Date":
+                payment.setExpiryDate(dateFormat.parse(value));
+                break;
+            case "Is Completed":
+                payment.setCompleted(Boolean.parseBoolean(value));
+                break;
+            case "Last Completed Date":
+                if (!value.equals("null")) {
+                    payment.setLastCompletedDate(dateFormat.parse(value));
+                }
+                break;
+        }
+    }
+
+    private void readAccountField(String key, String value) throws ParseException {
+        switch (key) {
+            case "ID":
+                id = Long.parseLong(value);
+                break;
+            case "Name":
+                name = value;
+                break;
+            case "Account Number":
+                accountNumber = value;
+                break;
+            case "Bank":
+                bank = value;
+                break;
+            case "Expiry Date":
+                if (!value.equalsIgnoreCase("null")) {
+                    expiryDate = dateFormat.parse(value);
+                }
+                break;
+            case "Description":
+                description = value;
+                break;
+            case "Is Default":
+                isDefault = Boolean.parseBoolean(value);
+                break;
+        }
+    }
+
+    // line.substring(start, end).trim() without the intermediate copy
+    private static String trim(String line, int start, int end) {
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return line.substring(start, end);
+    }
+}
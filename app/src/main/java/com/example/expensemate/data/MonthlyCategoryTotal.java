@@ -0,0 +1,51 @@
+package com.example.expensemate.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+/**
+ * Running total of the summary-included transactions for one month, account, type and category.
+ * Rows are maintained by the triggers created in AppDatabase and are never written from Java.
+ */
+@Entity(tableName = "monthly_category_totals",
+        primaryKeys = {"yearMonth", "transactionType", "accountId", "category"})
+public class MonthlyCategoryTotal {
+    private int yearMonth; // yyyyMM, Transaction.yearMonth of the counted transactions, e.g. 202401
+    private long accountId; // 0 when the transaction has no account
+    @NonNull
+    private String transactionType; // "DEBIT" or "CREDIT"
+    @NonNull
+    private String category;
+    private long totalPaise;
+    private int transactionCount; // Row is removed when this drops to 0
+
+    public MonthlyCategoryTotal(int yearMonth, long accountId, @NonNull String transactionType,
+                                @NonNull String category, long totalPaise, int transactionCount) {
+        this.yearMonth = yearMonth;
+        this.accountId = accountId;
+        this.transactionType = transactionType;
+        this.category = category;
+        this.totalPaise = totalPaise;
+        this.transactionCount = transactionCount;
+    }
+
+    public int getYearMonth() { return yearMonth; }
+    public void setYearMonth(int yearMonth) { this.yearMonth = yearMonth; }
+
+    public long getAccountId() { return accountId; }
+    public void setAccountId(long accountId) { this.accountId = accountId; }
+
+    @NonNull
+    public String getTransactionType() { return transactionType; }
+    public void setTransactionType(@NonNull String transactionType) { this.transactionType = transactionType; }
+
+    @NonNull
+    public String getCategory() { return category; }
+    public void setCategory(@NonNull String category) { this.category = category; }
+
+    public long getTotalPaise() { return totalPaise; }
+    public void setTotalPaise(long totalPaise) { this.totalPaise = totalPaise; }
+
+    public int getTransactionCount() { return transactionCount; }
+    public void setTransactionCount(int transactionCount) { this.transactionCount = transactionCount; }
+}
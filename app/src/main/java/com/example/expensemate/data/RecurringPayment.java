@@ -10,15 +10,15 @@ public class RecurringPayment {
     private long id;
     
     private String name;
-    private double amount;
+    private long amountPaise; // Amount in paise
     private int dueDay; // Day of the month (1-31)
     private Date expiryDate;
     private boolean isCompleted;
     private Date lastCompletedDate;
 
-    public RecurringPayment(String name, double amount, int dueDay, Date expiryDate) {
+    public RecurringPayment(String name, long amountPaise, int dueDay, Date expiryDate) {
         this.name = name;
-        this.amount = amount;
+        this.amountPaise = amountPaise;
         this.dueDay = dueDay;
         this.expiryDate = expiryDate;
         this.isCompleted = false;
@@ -31,8 +31,8 @@ public class RecurringPayment {
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
     
-    public double getAmount() { return amount; }
-    public void setAmount(double amount) { this.amount = amount; }
+    public long getAmountPaise() { return amountPaise; }
+    public void setAmountPaise(long amountPaise) { this.amountPaise = amountPaise; }
     
     public int getDueDay() { return dueDay; }
     public void setDueDay(int dueDay) { this.dueDay = dueDay; }
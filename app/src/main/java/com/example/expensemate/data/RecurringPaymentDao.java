@@ -9,11 +9,11 @@ public interface RecurringPaymentDao {
     @Query("SELECT * FROM recurring_payments ORDER BY isCompleted ASC, dueDay ASC")
     LiveData<List<RecurringPayment>> getAllRecurringPayments();
 
-    @Query("SELECT SUM(amount) FROM recurring_payments")
-    LiveData<Double> getTotalAmount();
+    @Query("SELECT SUM(amountPaise) FROM recurring_payments")
+    LiveData<Long> getTotalAmount();
 
-    @Query("SELECT SUM(amount) FROM recurring_payments WHERE isCompleted = 0")
-    LiveData<Double> getRemainingAmount();
+    @Query("SELECT SUM(amountPaise) FROM recurring_payments WHERE isCompleted = 0")
+    LiveData<Long> getRemainingAmount();
 
     @Query("SELECT * FROM recurring_payments ORDER BY dueDay ASC")
     List<RecurringPayment> getAllRecurringPaymentsSync();
@@ -21,6 +21,9 @@ public interface RecurringPaymentDao {
     @Insert
     void insert(RecurringPayment payment);
 
+    @Insert
+    void insertAll(List<RecurringPayment> payments);
+
     @Update
     void update(RecurringPayment payment);
 
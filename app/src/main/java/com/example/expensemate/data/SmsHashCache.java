@@ -0,0 +1,189 @@
+package com.example.expensemate.data;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import com.example.expensemate.utils.BloomFilter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory front for the smsHash duplicate check, so that scanning an inbox does not cost one
+ * query per message. Seeded on first use from the smsHash column:
+ * a Bloom filter over every hash answers most new messages without the database, and an LRU of the
+ * most recent hashes answers most re-scanned ones. Only a Bloom filter hit that is not in the LRU
+ * is checked with a query.
+ * Callers record every insert with recordInserted once its database transaction has committed, so
+ * the filter never misses a stored hash. Deleting transactions must call invalidate, the LRU would
+ * otherwise still report them.
+ * The database is only queried outside the lock of the cache: recordInserted may run on a thread
+ * that holds the database connection, which would otherwise wait for a thread holding the lock and
+ * waiting for the connection.
+ * The unique index on smsHash is what rules duplicates out, this only saves the insert attempt.
+ */
+public class SmsHashCache {
+    private static final String TAG = "SmsHashCache";
+    private static final int RECENT_CAPACITY = 512;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // The filter is sized for this many inserts on top of the seeded hashes before its error rate rises
+    private static final int MIN_HEADROOM = 4096;
+
+    private static volatile SmsHashCache instance;
+
+    private final AppDatabase database;
+    private final TransactionDao transactionDao;
+    private final Map<Long, Boolean> recent = new LinkedHashMap<Long, Boolean>(RECENT_CAPACITY, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > RECENT_CAPACITY;
+        }
+    };
+    private BloomFilter filter; // null until seeded
+    // Recorded while the filter is not seeded, added to it once it is
+    private final List<Long> unseeded = new ArrayList<>();
+    private int generation; // Counts invalidate calls, a seed read before one is dropped
+
+    private SmsHashCache(AppDatabase database) {
+        this.database = database;
+        this.transactionDao = database.transactionDao();
+    }
+
+    /**
+     * @return The cache of the database. There is one cache at a time: a different database, such as
+     * an in-memory one in tests, replaces the cache of the previous one.
+     */
+    public static SmsHashCache getInstance(AppDatabase database) {
+        SmsHashCache cache = instance;
+        if (cache == null || cache.database != database) {
+            synchronized (SmsHashCache.class) {
+                cache = instance;
+                if (cache == null || cache.database != database) {
+                    cache = new SmsHashCache(database);
+                    instance = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Records the hash unless a transaction with it already exists or was recorded before.
+     * Must not be called on the main thread, it may query the database.
+     * @return true if the hash is new, false for a duplicate
+     */
+    public boolean addIfAbsent(long smsHash) {
+        ensureSeeded();
+        synchronized (this) {
+            if (recent.containsKey(smsHash)) {
+                return false;
+            }
+            // An invalidate since ensureSeeded leaves no filter, the query below decides then
+            if (filter != null && !filter.mightContain(smsHash)) {
+                record(smsHash);
+                return true;
+            }
+        }
+        boolean stored = transactionDao.countTransactionsBySmsHash(smsHash) > 0;
+        synchronized (this) {
+            if (recent.containsKey(smsHash)) {
+                // Claimed by another thread during the query
+                return false;
+            }
+            if (stored) {
+                recent.put(smsHash, Boolean.TRUE);
+                return false;
+            }
+            record(smsHash);
+            return true;
+        }
+    }
+
+    /**
+     * Records the hash of a stored transaction. Call it after the transaction that inserted it has
+     * committed, it never queries the database.
+     */
+    public synchronized void recordInserted(Long smsHash) {
+        if (smsHash != null) {
+            record(smsHash);
+        }
+    }
+
+    /**
+     * Takes back a hash from addIfAbsent whose transaction was not stored
+     */
+    public synchronized void forget(long smsHash) {
+        recent.remove(smsHash);
+    }
+
+    /**
+     * Drops everything after transactions were deleted, the next call seeds again from the database
+     */
+    public synchronized void invalidate() {
+        recent.clear();
+        unseeded.clear();
+        filter = null;
+        generation++;
+    }
+
+    private void record(long smsHash) {
+        if (filter != null) {
+            filter.add(smsHash);
+        } else {
+            unseeded.add(smsHash);
+        }
+        recent.put(smsHash, Boolean.TRUE);
+    }
+
+    // Reads the hashes without holding the lock, then installs them unless invalidate ran meanwhile
+    private void ensureSeeded() {
+        while (true) {
+            int seedGeneration;
+            synchronized (this) {
+                if (filter != null) {
+                    return;
+                }
+                seedGeneration = generation;
+            }
+            long start = System.currentTimeMillis();
+            BloomFilter seeded;
+            List<Long> newest = new ArrayList<>(RECENT_CAPACITY);
+            int count;
+            try (Cursor cursor = transactionDao.getSmsHashesNewestFirst()) {
+                count = cursor.getCount();
+                seeded = new BloomFilter(Math.max(count * 2, count + MIN_HEADROOM), FALSE_POSITIVE_RATE);
+                while (cursor.moveToNext()) {
+                    long smsHash = cursor.getLong(0);
+                    seeded.add(smsHash);
+                    if (newest.size() < RECENT_CAPACITY) {
+                        newest.add(smsHash);
+                    }
+                }
+            }
+            synchronized (this) {
+                if (filter != null) {
+                    return;
+                }
+                if (generation != seedGeneration) {
+                    continue;
+                }
+                // Newest first, so the LRU ends up holding the messages a re-scan meets first.
+                // Hashes recorded during the read were put in the LRU already
+                for (long smsHash : newest) {
+                    if (!recent.containsKey(smsHash)) {
+                        recent.put(smsHash, Boolean.TRUE);
+                    }
+                }
+                for (long smsHash : unseeded) {
+                    seeded.add(smsHash);
+                }
+                unseeded.clear();
+                filter = seeded;
+            }
+            Log.d(TAG, "Seeded with " + count + " hashes in " + (System.currentTimeMillis() - start) + " ms");
+            return;
+        }
+    }
+}
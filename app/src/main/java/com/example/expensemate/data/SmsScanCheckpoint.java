@@ -0,0 +1,90 @@
+package com.example.expensemate.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+
+/**
+ * How far an SMS inbox has been imported: every message with an _ID up to getLastSmsId and a date
+ * from getCoveredFromMillis on has been processed, or only those from transactional senders if
+ * isAllSenders is false. Rescans only need the rows above the last _ID, the provider assigns _IDs
+ * in increasing order.
+ * Kept in shared preferences per inbox uri, and cleared on restore because the restored
+ * transactions may predate it. A checkpoint recorded with other parsers counts as no checkpoint,
+ * messages they did not match may match now.
+ */
+public class SmsScanCheckpoint {
+    private static final String PREFS_NAME = "sms_scan_checkpoints";
+    private static final String KEY_LAST_SMS_ID = "_last_sms_id";
+    private static final String KEY_COVERED_FROM = "_covered_from";
+    private static final String KEY_ALL_SENDERS = "_all_senders";
+    private static final String KEY_PARSER_SIGNATURE = "_parser_signature";
+
+    private final SharedPreferences preferences;
+    private final String inbox;
+    private final int parserSignature;
+
+    /**
+     * @param parserSignature SmsTransactionHandler.getParserSignature of the parsers the scans use
+     */
+    public SmsScanCheckpoint(Context context, Uri inbox, int parserSignature) {
+        this.preferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.inbox = inbox.toString();
+        this.parserSignature = parserSignature;
+    }
+
+    /**
+     * @param allSenders Whether messages from every sender are needed, or only from transactional ones
+     * @return true if the needed messages from fromMillis on up to getLastSmsId were all processed
+     */
+    public boolean covers(long fromMillis, boolean allSenders) {
+        return getLastSmsId() >= 0 && fromMillis >= getCoveredFromMillis() && (isAllSenders() || !allSenders);
+    }
+
+    /**
+     * @return The highest processed _ID, -1 if the inbox was never scanned
+     */
+    public long getLastSmsId() {
+        if (!preferences.contains(inbox + KEY_PARSER_SIGNATURE)
+                || preferences.getInt(inbox + KEY_PARSER_SIGNATURE, 0) != parserSignature) {
+            return -1;
+        }
+        return preferences.getLong(inbox + KEY_LAST_SMS_ID, -1);
+    }
+
+    public long getCoveredFromMillis() {
+        return preferences.getLong(inbox + KEY_COVERED_FROM, Long.MAX_VALUE);
+    }
+
+    public boolean isAllSenders() {
+        return preferences.getBoolean(inbox + KEY_ALL_SENDERS, false);
+    }
+
+    /**
+     * Records a finished scan that processed every message dated from coveredFromMillis up to the present,
+     * either all of them or all above getLastSmsId
+     * @param processedSmsId _ID up to which the scan processed every message it read, see
+     *                       SmsScanPipeline.Result.getProcessedSmsId, -1 if it read none
+     * @param allSenders false if the scan only read messages from transactional senders
+     */
+    public void advance(long coveredFromMillis, long processedSmsId, boolean allSenders) {
+        // May move back, below a message that failed this time so the next scan reads it again
+        long lastSmsId = processedSmsId >= 0 ? processedSmsId : getLastSmsId();
+        if (lastSmsId < 0) {
+            return;
+        }
+        preferences.edit()
+                .putLong(inbox + KEY_LAST_SMS_ID, lastSmsId)
+                .putLong(inbox + KEY_COVERED_FROM, coveredFromMillis)
+                .putBoolean(inbox + KEY_ALL_SENDERS, allSenders)
+                .putInt(inbox + KEY_PARSER_SIGNATURE, parserSignature)
+                .apply();
+    }
+
+    /**
+     * Forgets every inbox, so the next scans process their whole range again
+     */
+    public static void clearAll(Context context) {
+        context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+    }
+}
@@ -1,34 +1,54 @@
 package com.example.expensemate.data;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 import androidx.room.Ignore;
+import java.util.Calendar;
 import java.util.Date;
-import android.util.Log;
 
-@Entity(tableName = "transactions")
+import com.example.expensemate.utils.SmsFingerprint;
+
+// The two composite indexes cover the summary and account totals queries in TransactionDao:
+// equality columns first, then the date range, then the columns that are only read.
+@Entity(tableName = "transactions",
+        indices = {
+            @Index(name = "index_transactions_account_summary",
+                    value = {"accountId", "transactionType", "isExcludedFromSummary", "date", "amountPaise"}),
+            @Index(name = "index_transactions_period_summary",
+                    value = {"transactionType", "isExcludedFromSummary", "date", "category", "accountId", "amountPaise"}),
+            @Index("date"),
+            @Index(value = "smsHash", unique = true)
+        })
 public class Transaction {
     @PrimaryKey(autoGenerate = true)
     private long id;
-    private double amount;
+    private long amountPaise; // Amount in paise, 1 rupee = 100 paise
     private String description;
     
     @TypeConverters(Converters.class)
     private Date date;
     private String transactionType; // "DEBIT" or "CREDIT"
     private String receiverName;
+    // The SMS is stored in transaction_sms, TransactionDao.insertTransaction writes it there
+    @Ignore
     private String smsBody;
+    @Ignore
     private String smsSender;
     private String category; // New field for transaction category
     private Long linkedRecurringPaymentId; // ID of the linked recurring payment, null if not linked
-    private String smsHash; // Hash of SMS body and sender for duplicate detection
+    private Long smsHash; // SmsFingerprint of the SMS body and sender, unique for duplicate detection
     private Long accountId; // ID of the linked account
     private boolean isExcludedFromSummary; // Whether this transaction should be excluded from summary calculations
+    // yyyyMM of date in the time zone it was saved in. The rollup triggers read it from the row, so a
+    // transaction leaves the monthly_category_totals row it was added to even after a time zone change
+    private Integer yearMonth;
 
     public Transaction() {
         this.category = "Default"; // Default category
         this.date = new Date(); // Initialize with current date
+        this.yearMonth = yearMonthOf(this.date);
         this.linkedRecurringPaymentId = null;
         this.smsHash = null;
         this.accountId = null;
@@ -36,19 +56,20 @@ public class Transaction {
     }
 
     @Ignore
-    public Transaction(double amount, String description, Date date,
+    public Transaction(long amountPaise, String description, Date date,
                       String transactionType, String receiverName,
                       String smsBody, String smsSender) {
-        this.amount = amount;
+        this.amountPaise = amountPaise;
         this.description = description;
         this.date = date != null ? date : new Date();
+        this.yearMonth = yearMonthOf(this.date);
         this.transactionType = transactionType;
         this.receiverName = receiverName;
         this.smsBody = smsBody;
         this.smsSender = smsSender;
         this.category = "Default"; // Default category
         this.linkedRecurringPaymentId = null;
-        this.smsHash = generateSmsHash(smsBody, smsSender);
+        this.smsHash = SmsFingerprint.of(smsBody, smsSender);
         this.isExcludedFromSummary = false; // Default to included
     }
 
@@ -61,12 +82,12 @@ public class Transaction {
         this.id = id;
     }
 
-    public double getAmount() {
-        return amount;
+    public long getAmountPaise() {
+        return amountPaise;
     }
 
-    public void setAmount(double amount) {
-        this.amount = amount;
+    public void setAmountPaise(long amountPaise) {
+        this.amountPaise = amountPaise;
     }
 
     public String getDescription() {
@@ -83,6 +104,24 @@ public class Transaction {
 
     public void setDate(Date date) {
         this.date = date != null ? date : new Date();
+        this.yearMonth = yearMonthOf(this.date);
+    }
+
+    public Integer getYearMonth() {
+        return yearMonth;
+    }
+
+    public void setYearMonth(Integer yearMonth) {
+        this.yearMonth = yearMonth;
+    }
+
+    /**
+     * yyyyMM of the date in the device time zone, the month key of monthly_category_totals
+     */
+    public static int yearMonthOf(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return calendar.get(Calendar.YEAR) * 100 + calendar.get(Calendar.MONTH) + 1;
     }
 
     public String getTransactionType() {
@@ -133,11 +172,11 @@ public class Transaction {
         this.linkedRecurringPaymentId = linkedRecurringPaymentId;
     }
 
-    public String getSmsHash() {
+    public Long getSmsHash() {
         return smsHash;
     }
 
-    public void setSmsHash(String smsHash) {
+    public void setSmsHash(Long smsHash) {
         this.smsHash = smsHash;
     }
 
@@ -156,21 +195,4 @@ public class Transaction {
     public void setExcludedFromSummary(boolean excludedFromSummary) {
         isExcludedFromSummary = excludedFromSummary;
     }
-
-    private String generateSmsHash(String smsBody, String smsSender) {
-        if (smsBody == null || smsSender == null) {
-            Log.d("Transaction", "SMS hash generation failed: null body or sender");
-            return null;
-        }
-        // Normalize the strings by trimming and converting to lowercase
-        String normalizedBody = smsBody.trim().toLowerCase();
-        String normalizedSender = smsSender.trim().toLowerCase();
-        String combined = normalizedBody + "|" + normalizedSender;
-        String hash = String.valueOf(combined.hashCode());
-        Log.d("Transaction", "Generated SMS hash: " + hash);
-        Log.d("Transaction", "Original SMS body: [" + smsBody + "]");
-        Log.d("Transaction", "Original SMS sender: [" + smsSender + "]");
-        Log.d("Transaction", "Normalized combined: [" + combined + "]");
-        return hash;
-    }
-}
\ No newline at end of file
+}
@@ -1,124 +1,231 @@
 package com.example.expensemate.data;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 @Dao
 public interface TransactionDao {
+    /**
+     * Inserts the transaction and stores its SMS, if any, in transaction_sms.
+     * The caller records the smsHash in SmsHashCache once the insert has committed.
+     * @return false if a transaction with the same smsHash or id exists, nothing is inserted then
+     */
+    @androidx.room.Transaction
+    default boolean insertTransaction(Transaction transaction) {
+        long id = insertTransactionRow(transaction);
+        if (id == -1) {
+            return false;
+        }
+        if (transaction.getSmsBody() != null || transaction.getSmsSender() != null) {
+            insertSms(TransactionSms.of(id, transaction.getSmsBody(), transaction.getSmsSender()));
+        }
+        return true;
+    }
+
+    /**
+     * Inserts the transactions and their SMS in one database transaction, see insertTransaction
+     * @return The id of each inserted transaction, -1 for those skipped as duplicates
+     */
+    @androidx.room.Transaction
+    default long[] insertTransactions(List<Transaction> transactions) {
+        long[] ids = insertTransactionRows(transactions);
+        List<TransactionSms> smsRows = new ArrayList<>(transactions.size());
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == -1) {
+                continue;
+            }
+            Transaction transaction = transactions.get(i);
+            if (transaction.getSmsBody() != null || transaction.getSmsSender() != null) {
+                smsRows.add(TransactionSms.of(ids[i], transaction.getSmsBody(), transaction.getSmsSender()));
+            }
+        }
+        insertSmsRows(smsRows);
+        return ids;
+    }
+
+    // Not REPLACE: on a smsHash conflict that would delete the other row without firing the delete triggers
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertTransactionRow(Transaction transaction);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long[] insertTransactionRows(List<Transaction> transactions);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertSms(TransactionSms sms);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertTransaction(Transaction transaction);
+    void insertSmsRows(List<TransactionSms> smsRows);
+
+    @Query("DELETE FROM transaction_sms WHERE transactionId = :transactionId")
+    void deleteSms(long transactionId);
+
+    @Query("SELECT * FROM transaction_sms WHERE transactionId = :transactionId")
+    TransactionSms getSms(long transactionId);
+
+    String SMS_SENDERS_QUERY = "SELECT DISTINCT sender FROM transaction_sms WHERE sender IS NOT NULL";
+
+    @Query(SMS_SENDERS_QUERY)
+    List<String> getSmsSenders();
+
+    /**
+     * Fills in the SMS body and sender of a transaction read from the transactions table
+     */
+    default void loadSms(Transaction transaction) {
+        TransactionSms sms = getSms(transaction.getId());
+        if (sms != null) {
+            transaction.setSmsBody(sms.getBody());
+            transaction.setSmsSender(sms.getSender());
+        }
+    }
 
     @Delete
     void deleteTransaction(Transaction transaction);
 
-    @Query("UPDATE transactions SET amount = :amount, description = :description, date = :date, " +
-            "transactionType = :transactionType, " +
-            "receiverName = :receiverName, smsBody = :smsBody, smsSender = :smsSender, category = :category, " +
+    @Query("DELETE FROM transactions WHERE id = :id")
+    void deleteTransactionById(long id);
+
+    @Query("UPDATE transactions SET isExcludedFromSummary = :isExcludedFromSummary WHERE id = :id")
+    void setExcludedFromSummary(long id, boolean isExcludedFromSummary);
+
+    @Query("SELECT * FROM transactions WHERE id = :id")
+    Transaction getTransactionById(long id);
+
+    //Columns of TransactionListItem, list screens select these instead of * to leave the SMS payload behind
+    String LIST_ITEM_COLUMNS = "id, amountPaise, description, date, transactionType, receiverName, category, " +
+            "linkedRecurringPaymentId, accountId, isExcludedFromSummary";
+
+    //The SMS a transaction was read from is never edited, so it is left out of updates
+    @Query("UPDATE transactions SET amountPaise = :amountPaise, description = :description, date = :date, " +
+            "yearMonth = :yearMonth, transactionType = :transactionType, " +
+            "receiverName = :receiverName, category = :category, " +
             "linkedRecurringPaymentId = :linkedRecurringPaymentId, isExcludedFromSummary = :isExcludedFromSummary, accountId = :accountId WHERE id = :id")
-    void updateTransaction(long id, double amount, String description, Date date, String transactionType, String receiverName,
-                           String smsBody, String smsSender, String category, Long linkedRecurringPaymentId, Long accountId, boolean isExcludedFromSummary);
+    void updateTransaction(long id, long amountPaise, String description, Date date, Integer yearMonth,
+                           String transactionType, String receiverName,
+                           String category, Long linkedRecurringPaymentId, Long accountId, boolean isExcludedFromSummary);
 
     /****************************************************************************************************/
     //Summary screen
+    //Totals come from monthly_category_totals, kept up to date by triggers on transactions (see AppDatabase).
+    //yearMonth is yyyyMM, accountId 0 in that table stands for transactions without an account.
+    //The SQL of the queries is kept in constants so TransactionQueryPlanTest checks the very same statements.
 
     //Summary screen expense
-    @Query("SELECT COALESCE(SUM(amount), 0) FROM transactions " +
-            "WHERE transactionType = 'DEBIT' AND isExcludedFromSummary = 0 " +
-            "AND strftime('%m', datetime(date/1000, 'unixepoch')) = :month " +
-            "AND strftime('%Y', datetime(date/1000, 'unixepoch')) = :year " +
-            "AND (:accountId IS NULL OR accountId = :accountId)")
-    Double getExpenseForExpenseScreen(String month, String year, Long accountId);
+    String EXPENSE_TOTAL_QUERY = "SELECT COALESCE(SUM(totalPaise), 0) FROM monthly_category_totals " +
+            "WHERE yearMonth = :yearMonth AND transactionType = 'DEBIT' " +
+            "AND (:accountId IS NULL OR accountId = :accountId)";
+
+    @Query(EXPENSE_TOTAL_QUERY)
+    long getExpenseForExpenseScreen(int yearMonth, Long accountId);
 
     //Summary screen income
-    @Query("SELECT COALESCE(SUM(amount), 0) FROM transactions " +
-            "WHERE transactionType = 'CREDIT' AND isExcludedFromSummary = 0 " +
-            "AND strftime('%m', datetime(date/1000, 'unixepoch')) = :month " +
-            "AND strftime('%Y', datetime(date/1000, 'unixepoch')) = :year " +
-            "AND (:accountId IS NULL OR accountId = :accountId)")
-    Double getIncomeForExpenseScreen(String month, String year, Long accountId);
+    String INCOME_TOTAL_QUERY = "SELECT COALESCE(SUM(totalPaise), 0) FROM monthly_category_totals " +
+            "WHERE yearMonth = :yearMonth AND transactionType = 'CREDIT' " +
+            "AND (:accountId IS NULL OR accountId = :accountId)";
+
+    @Query(INCOME_TOTAL_QUERY)
+    long getIncomeForExpenseScreen(int yearMonth, Long accountId);
 
     // Category sum for expense section of summary screen
-    @Query("SELECT category, SUM(amount) as total FROM transactions " +
-           "WHERE transactionType = 'DEBIT' AND isExcludedFromSummary = 0 " +
-           "AND strftime('%m', datetime(date/1000, 'unixepoch')) = :month " +
-           "AND strftime('%Y', datetime(date/1000, 'unixepoch')) = :year " +
+    String EXPENSE_CATEGORY_SUMS_QUERY = "SELECT category, SUM(totalPaise) as totalPaise FROM monthly_category_totals " +
+           "WHERE yearMonth = :yearMonth AND transactionType = 'DEBIT' " +
            "AND (:accountId IS NULL OR accountId = :accountId) " +
-           "GROUP BY category ORDER BY total DESC")
-    LiveData<List<CategorySum>> getExpenseCategorySumForSummaryScreen(String month, String year, Long accountId);
+           "GROUP BY category ORDER BY totalPaise DESC";
+
+    @Query(EXPENSE_CATEGORY_SUMS_QUERY)
+    LiveData<List<CategorySum>> getExpenseCategorySumForSummaryScreen(int yearMonth, Long accountId);
 
     // Category sum for income section of summary screen
-    @Query("SELECT category, SUM(amount) as total FROM transactions " +
-           "WHERE transactionType = 'CREDIT' AND isExcludedFromSummary = 0 " +
-           "AND strftime('%m', datetime(date/1000, 'unixepoch')) = :month " +
-           "AND strftime('%Y', datetime(date/1000, 'unixepoch')) = :year " +
+    String INCOME_CATEGORY_SUMS_QUERY = "SELECT category, SUM(totalPaise) as totalPaise FROM monthly_category_totals " +
+           "WHERE yearMonth = :yearMonth AND transactionType = 'CREDIT' " +
            "AND (:accountId IS NULL OR accountId = :accountId) " +
-           "GROUP BY category ORDER BY total DESC")
-    LiveData<List<CategorySum>> getIncomeCategorySumForSummaryScreen(String month, String year, Long accountId);
+           "GROUP BY category ORDER BY totalPaise DESC";
+
+    @Query(INCOME_CATEGORY_SUMS_QUERY)
+    LiveData<List<CategorySum>> getIncomeCategorySumForSummaryScreen(int yearMonth, Long accountId);
 
-    //Transactions shown for each category wise breakup in the summary screen
-    @Query("SELECT * FROM transactions " +
+    //Transactions shown for each category wise breakup in the summary screen.
+    //The period is a half-open epoch millis range [startMillis, endMillis) so the date index can be range scanned
+    String CATEGORY_TRANSACTIONS_QUERY = "SELECT " + LIST_ITEM_COLUMNS + " FROM transactions " +
             "WHERE category = :category " +
             "AND transactionType = :transactionType " +
             "AND isExcludedFromSummary = 0 " +
-            "AND strftime('%m', datetime(date/1000, 'unixepoch')) = :month " +
-            "AND strftime('%Y', datetime(date/1000, 'unixepoch')) = :year " +
+            "AND date >= :startMillis AND date < :endMillis " +
             "AND (:accountId IS NULL OR accountId = :accountId) " +
-            "ORDER BY date DESC")
-    LiveData<List<Transaction>> getTransactionsByCategoryForSummaryScreen(String category, String month, String year, Long accountId, String transactionType);
+            "ORDER BY date DESC";
 
-    /****************************************************************************************************/
-    //Account details screen
-
-    //Account details screen income
-    @Query("SELECT COALESCE(SUM(amount), 0) FROM transactions " +
-           "WHERE transactionType = 'CREDIT' " +
-            "AND isExcludedFromSummary = 0 " +
-           "AND accountId = :accountId")
-    double getTotalIncomeForAccountDetailsScreen(long accountId);
-
-    //Account details screen expense
-    @Query("SELECT COALESCE(SUM(amount), 0) FROM transactions " +
-           "WHERE transactionType = 'DEBIT' " +
-            "AND isExcludedFromSummary = 0 " +
-           "AND accountId = :accountId")
-    double getTotalExpenseForAccountDetailsScreen(long accountId);
-
-    //Transactions for account details screen
-    @Query("SELECT * FROM transactions " +
-           "WHERE date BETWEEN :startDate AND :endDate " +
-           "AND accountId = :accountId " +
-           "ORDER BY date DESC")
-    LiveData<List<Transaction>> getTransactionsForAccountDetailsScreen(Date startDate, Date endDate, long accountId);
+    @Query(CATEGORY_TRANSACTIONS_QUERY)
+    LiveData<List<TransactionListItem>> getTransactionsByCategoryForSummaryScreen(String category, long startMillis, long endMillis, Long accountId, String transactionType);
 
     /****************************************************************************************************/
-    //Transactions screen
+    //Transactions screen and account details screen
+    //Both page through the filter below with TransactionPagingSource, keyed on (date, id) newest first.
+    //The caller clamps the date range to the key so the date index is range scanned from the key onwards,
+    //the key condition then only has to skip rows sharing the key's date.
 
-    @Query("SELECT * FROM transactions " +
-            "WHERE date BETWEEN :fromDate AND :toDate " +
+    String FILTER_CONDITIONS =
             "AND (:accountId IS NULL OR accountId = :accountId) " +
             "AND (:description IS NULL OR description LIKE '%' || :description || '%') " +
             "AND (:receiverName IS NULL OR receiverName LIKE '%' || :receiverName || '%') " +
             "AND (:category IS NULL OR category = :category) " +
-            "AND (:amount IS NULL OR amount = :amount) " +
+            "AND (:amountPaise IS NULL OR amountPaise = :amountPaise) " +
             "AND (:transactionType IS NULL OR transactionType = :transactionType) " +
             "AND (:isExcludedFromSummary IS NULL OR isExcludedFromSummary = :isExcludedFromSummary) " +
-            "AND (:linkedRecurringPaymentId IS NULL OR linkedRecurringPaymentId = :linkedRecurringPaymentId) " +
-            "ORDER BY date DESC")
-    List<Transaction> getFilteredTransactions(Date fromDate, Date toDate, Long accountId, 
-            String description, String receiverName, String category, Double amount,
-            String transactionType, Boolean isExcludedFromSummary, Long linkedRecurringPaymentId);
+            "AND (:linkedRecurringPaymentId IS NULL OR linkedRecurringPaymentId = :linkedRecurringPaymentId) ";
+
+    //Page of rows older than (keyDate, keyId), toMillis must not be after keyDate
+    String OLDER_THAN_QUERY = "SELECT " + LIST_ITEM_COLUMNS + " FROM transactions " +
+            "WHERE date BETWEEN :fromMillis AND :toMillis " +
+            "AND (date < :keyDate OR id < :keyId) " +
+            FILTER_CONDITIONS +
+            "ORDER BY date DESC, id DESC LIMIT :limit";
+
+    @Query(OLDER_THAN_QUERY)
+    List<TransactionListItem> getFilteredTransactionsOlderThan(long fromMillis, long toMillis, long keyDate, long keyId,
+            Long accountId, String description, String receiverName, String category, Long amountPaise,
+            String transactionType, Boolean isExcludedFromSummary, Long linkedRecurringPaymentId, int limit);
+
+    //Page of rows newer than (keyDate, keyId) in ascending order, fromMillis must not be before keyDate
+    String NEWER_THAN_QUERY = "SELECT " + LIST_ITEM_COLUMNS + " FROM transactions " +
+            "WHERE date BETWEEN :fromMillis AND :toMillis " +
+            "AND (date > :keyDate OR id > :keyId) " +
+            FILTER_CONDITIONS +
+            "ORDER BY date ASC, id ASC LIMIT :limit";
+
+    @Query(NEWER_THAN_QUERY)
+    List<TransactionListItem> getFilteredTransactionsNewerThan(long fromMillis, long toMillis, long keyDate, long keyId,
+            Long accountId, String description, String receiverName, String category, Long amountPaise,
+            String transactionType, Boolean isExcludedFromSummary, Long linkedRecurringPaymentId, int limit);
+
+    //Rows with their SMS for the backup export, read through the cursor so the export holds one row at a time
+    @Query("SELECT t.id, t.amountPaise, t.description, t.date, t.transactionType, t.receiverName, t.category, " +
+            "t.isExcludedFromSummary, t.accountId, t.linkedRecurringPaymentId, t.smsHash, s.compressedBody, s.sender " +
+            "FROM transactions t LEFT JOIN transaction_sms s ON s.transactionId = t.id " +
+            "WHERE t.date BETWEEN :fromMillis AND :toMillis " +
+            "ORDER BY t.date DESC")
+    Cursor getTransactionsForExport(long fromMillis, long toMillis);
 
     /****************************************************************************************************/
     // Queries for purposes other than screen
 
-    @Query("SELECT COUNT(*) FROM transactions WHERE smsHash = :smsHash")
-    int countTransactionsBySmsHash(String smsHash);
+    String COUNT_BY_SMS_HASH_QUERY = "SELECT COUNT(*) FROM transactions WHERE smsHash = :smsHash";
+
+    @Query(COUNT_BY_SMS_HASH_QUERY)
+    int countTransactionsBySmsHash(long smsHash);
+
+    // Seeds SmsHashCache, newest first so the first rows are the ones a re-scan meets first
+    String SMS_HASHES_NEWEST_FIRST_QUERY = "SELECT smsHash FROM transactions WHERE smsHash IS NOT NULL ORDER BY date DESC";
+
+    @Query(SMS_HASHES_NEWEST_FIRST_QUERY)
+    Cursor getSmsHashesNewestFirst();
 
     @Query("SELECT * FROM transactions ORDER BY date DESC")
     List<Transaction> getAllTransactionsSyncOrderByDateAsc();
@@ -0,0 +1,51 @@
+package com.example.expensemate.data;
+
+/**
+ * Conditions of the transactions list query. Dates are inclusive epoch millis bounds,
+ * every other field matches all rows when null.
+ */
+public class TransactionFilter {
+    private final long fromMillis;
+    private final long toMillis;
+    private final Long accountId;
+    private final String description;
+    private final String receiverName;
+    private final String category;
+    private final Long amountPaise;
+    private final String transactionType;
+    private final Boolean isExcludedFromSummary;
+    private final Long linkedRecurringPaymentId;
+
+    public TransactionFilter(long fromMillis, long toMillis, Long accountId, String description,
+                             String receiverName, String category, Long amountPaise, String transactionType,
+                             Boolean isExcludedFromSummary, Long linkedRecurringPaymentId) {
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        this.accountId = accountId;
+        this.description = description;
+        this.receiverName = receiverName;
+        this.category = category;
+        this.amountPaise = amountPaise;
+        this.transactionType = transactionType;
+        this.isExcludedFromSummary = isExcludedFromSummary;
+        this.linkedRecurringPaymentId = linkedRecurringPaymentId;
+    }
+
+    /**
+     * @return A filter on the date range and account only, as used by the account details screen
+     */
+    public static TransactionFilter forAccount(long fromMillis, long toMillis, long accountId) {
+        return new TransactionFilter(fromMillis, toMillis, accountId, null, null, null, null, null, null, null);
+    }
+
+    public long getFromMillis() { return fromMillis; }
+    public long getToMillis() { return toMillis; }
+    public Long getAccountId() { return accountId; }
+    public String getDescription() { return description; }
+    public String getReceiverName() { return receiverName; }
+    public String getCategory() { return category; }
+    public Long getAmountPaise() { return amountPaise; }
+    public String getTransactionType() { return transactionType; }
+    public Boolean isExcludedFromSummary() { return isExcludedFromSummary; }
+    public Long getLinkedRecurringPaymentId() { return linkedRecurringPaymentId; }
+}
@@ -0,0 +1,75 @@
+package com.example.expensemate.data;
+
+import java.util.Date;
+
+/**
+ * The columns of a transaction shown in list rows. Leaves out the SMS body, sender and hash,
+ * load the full Transaction by id when those are needed.
+ */
+public class TransactionListItem {
+    private long id;
+    private long amountPaise;
+    private String description;
+    private Date date;
+    private String transactionType;
+    private String receiverName;
+    private String category;
+    private Long linkedRecurringPaymentId;
+    private Long accountId;
+    private boolean isExcludedFromSummary;
+
+    public TransactionListItem(long id, long amountPaise, String description, Date date, String transactionType,
+                               String receiverName, String category, Long linkedRecurringPaymentId,
+                               Long accountId, boolean isExcludedFromSummary) {
+        this.id = id;
+        this.amountPaise = amountPaise;
+        this.description = description;
+        this.date = date;
+        this.transactionType = transactionType;
+        this.receiverName = receiverName;
+        this.category = category;
+        this.linkedRecurringPaymentId = linkedRecurringPaymentId;
+        this.accountId = accountId;
+        this.isExcludedFromSummary = isExcludedFromSummary;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getAmountPaise() {
+        return amountPaise;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public String getTransactionType() {
+        return transactionType;
+    }
+
+    public String getReceiverName() {
+        return receiverName;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public Long getLinkedRecurringPaymentId() {
+        return linkedRecurringPaymentId;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public boolean isExcludedFromSummary() {
+        return isExcludedFromSummary;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.expensemate.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Pages the transactions matching a TransactionFilter newest first.
+ * Pages are keyed on the (date, id) of their boundary rows instead of an offset, so each page is
+ * a range read on the date index however far the user has scrolled, and rows inserted or
+ * deleted above a page do not shift it.
+ */
+public class TransactionPagingSource extends ListenableFuturePagingSource<TransactionPagingSource.Key, TransactionListItem> {
+    private final TransactionDao transactionDao;
+    private final TransactionFilter filter;
+    private final Executor executor;
+
+    public TransactionPagingSource(TransactionDao transactionDao, TransactionFilter filter, Executor executor) {
+        this.transactionDao = transactionDao;
+        this.filter = filter;
+        this.executor = executor;
+    }
+
+    /**
+     * Position in the list, pages load the rows strictly older (append) or newer (prepend) than it
+     */
+    public static final class Key {
+        final long dateMillis;
+        final long id;
+
+        Key(long dateMillis, long id) {
+            this.dateMillis = dateMillis;
+            this.id = id;
+        }
+
+        static Key of(TransactionListItem transaction) {
+            return new Key(transaction.getDate().getTime(), transaction.getId());
+        }
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<Key, TransactionListItem>> loadFuture(@NonNull LoadParams<Key> params) {
+        return Futures.submit(() -> loadPage(params), executor);
+    }
+
+    private LoadResult<Key, TransactionListItem> loadPage(LoadParams<Key> params) {
+        try {
+            Key key = params.getKey();
+            int limit = params.getLoadSize();
+
+            if (params instanceof LoadParams.Prepend) {
+                List<TransactionListItem> page = loadNewer(key, limit);
+                Key prevKey = page.size() < limit ? null : Key.of(page.get(0));
+                return new LoadResult.Page<>(page, prevKey, page.isEmpty() ? null : Key.of(page.get(page.size() - 1)));
+            }
+
+            List<TransactionListItem> page = loadOlder(key, limit);
+            if (page.isEmpty() && key != null && params instanceof LoadParams.Refresh) {
+                // Everything from the refresh key down was deleted, start over from the newest row
+                key = null;
+                page = loadOlder(null, limit);
+            }
+            if (page.isEmpty()) {
+                return new LoadResult.Page<>(page, null, null);
+            }
+            // Only a page loaded from the top has nothing newer above it. Appended pages keep a
+            // prevKey as well, it is used once the pages above them are dropped to stay within maxSize
+            Key prevKey = key == null ? null : Key.of(page.get(0));
+            Key nextKey = page.size() < limit ? null : Key.of(page.get(page.size() - 1));
+            return new LoadResult.Page<>(page, prevKey, nextKey);
+        } catch (RuntimeException e) {
+            return new LoadResult.Error<>(e);
+        }
+    }
+
+    // Rows strictly older than key, newest first. A null key starts from the newest row in the filter
+    private List<TransactionListItem> loadOlder(@Nullable Key key, int limit) {
+        long keyDate = key != null ? key.dateMillis : filter.getToMillis();
+        long keyId = key != null ? key.id : Long.MAX_VALUE;
+        return transactionDao.getFilteredTransactionsOlderThan(
+                filter.getFromMillis(), Math.min(filter.getToMillis(), keyDate), keyDate, keyId,
+                filter.getAccountId(), filter.getDescription(), filter.getReceiverName(), filter.getCategory(),
+                filter.getAmountPaise(), filter.getTransactionType(), filter.isExcludedFromSummary(),
+                filter.getLinkedRecurringPaymentId(), limit);
+    }
+
+    // Rows strictly newer than key, newest first
+    private List<TransactionListItem> loadNewer(@NonNull Key key, int limit) {
+        List<TransactionListItem> page = transactionDao.getFilteredTransactionsNewerThan(
+                Math.max(filter.getFromMillis(), key.dateMillis), filter.getToMillis(), key.dateMillis, key.id,
+                filter.getAccountId(), filter.getDescription(), filter.getReceiverName(), filter.getCategory(),
+                filter.getAmountPaise(), filter.getTransactionType(), filter.isExcludedFromSummary(),
+                filter.getLinkedRecurringPaymentId(), limit);
+        Collections.reverse(page);
+        return page;
+    }
+
+    @Nullable
+    @Override
+    public Key getRefreshKey(@NonNull PagingState<Key, TransactionListItem> state) {
+        Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+        // Reload from half a page above the visible position so the rows on screen are in the first page
+        TransactionListItem anchor = state.closestItemToPosition(Math.max(0, anchorPosition - state.getConfig().pageSize / 2));
+        if (anchor == null) {
+            return null;
+        }
+        // Keys are exclusive, id + 1 makes the anchor row itself part of the refreshed page
+        return new Key(anchor.getDate().getTime(), anchor.getId() + 1);
+    }
+}
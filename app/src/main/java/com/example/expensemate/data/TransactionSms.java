@@ -0,0 +1,44 @@
+package com.example.expensemate.data;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.example.expensemate.utils.SmsCompression;
+
+/**
+ * The SMS a transaction was read from, kept out of the transactions table so that list and summary
+ * scans do not page the message text in. The body is stored compressed, see SmsCompression.
+ * Rows are removed together with their transaction by a trigger created in AppDatabase.
+ * The sender is indexed so TransactionDao.getSmsSenders does not read the bodies.
+ */
+@Entity(tableName = "transaction_sms", indices = {@Index("sender")})
+public class TransactionSms {
+    @PrimaryKey
+    private long transactionId;
+    private byte[] compressedBody;
+    private String sender;
+
+    public TransactionSms(long transactionId, byte[] compressedBody, String sender) {
+        this.transactionId = transactionId;
+        this.compressedBody = compressedBody;
+        this.sender = sender;
+    }
+
+    public static TransactionSms of(long transactionId, String body, String sender) {
+        return new TransactionSms(transactionId, SmsCompression.compress(body), sender);
+    }
+
+    public String getBody() {
+        return SmsCompression.decompress(compressedBody);
+    }
+
+    public long getTransactionId() { return transactionId; }
+    public void setTransactionId(long transactionId) { this.transactionId = transactionId; }
+
+    public byte[] getCompressedBody() { return compressedBody; }
+    public void setCompressedBody(byte[] compressedBody) { this.compressedBody = compressedBody; }
+
+    public String getSender() { return sender; }
+    public void setSender(String sender) { this.sender = sender; }
+}
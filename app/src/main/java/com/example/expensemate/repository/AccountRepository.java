@@ -2,10 +2,14 @@ package com.example.expensemate.repository;
 
 import android.app.Application;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Transformations;
 import com.example.expensemate.data.Account;
+import com.example.expensemate.data.AccountBalance;
 import com.example.expensemate.data.AppDatabase;
 import com.example.expensemate.data.AccountDao;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -13,6 +17,7 @@ public class AccountRepository {
     private AccountDao accountDao;
     private LiveData<List<Account>> allAccounts;
     private LiveData<Account> defaultAccount;
+    private LiveData<Map<Long, Long>> accountBalances;
     private ExecutorService executorService;
 
     public AccountRepository(Application application) {
@@ -20,6 +25,13 @@ public class AccountRepository {
         accountDao = db.accountDao();
         allAccounts = accountDao.getAllAccounts();
         defaultAccount = accountDao.getDefaultAccount();
+        accountBalances = Transformations.map(accountDao.getAccountBalances(), balances -> {
+            Map<Long, Long> balanceByAccount = new HashMap<>();
+            for (AccountBalance balance : balances) {
+                balanceByAccount.put(balance.getAccountId(), balance.getBalancePaise());
+            }
+            return balanceByAccount;
+        });
         executorService = Executors.newSingleThreadExecutor();
     }
 
@@ -31,6 +43,13 @@ public class AccountRepository {
         return defaultAccount;
     }
 
+    /**
+     * @return Balance in paise of every account that has transactions, keyed by account id
+     */
+    public LiveData<Map<Long, Long>> getAccountBalances() {
+        return accountBalances;
+    }
+
     public void setDefaultAccount(long accountId) {
         executorService.execute(() -> {
             accountDao.clearDefaultAccount();
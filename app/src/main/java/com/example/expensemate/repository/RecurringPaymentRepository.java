@@ -25,11 +25,11 @@ public class RecurringPaymentRepository {
         return allRecurringPayments;
     }
 
-    public LiveData<Double> getTotalAmount() {
+    public LiveData<Long> getTotalAmount() {
         return recurringPaymentDao.getTotalAmount();
     }
 
-    public LiveData<Double> getRemainingAmount() {
+    public LiveData<Long> getRemainingAmount() {
         return recurringPaymentDao.getRemainingAmount();
     }
 
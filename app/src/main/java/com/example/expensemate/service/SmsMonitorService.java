@@ -1,5 +1,6 @@
 package com.example.expensemate.service;
 
+import android.Manifest;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
@@ -7,18 +8,24 @@ import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.IBinder;
 import android.provider.Telephony;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
 
 import com.example.expensemate.MainActivity;
 import com.example.expensemate.R;
+import com.example.expensemate.data.SmsScanCheckpoint;
+import com.example.expensemate.util.SmsInboxReader;
+import com.example.expensemate.util.SmsScanPipeline;
 import com.example.expensemate.util.SmsTransactionHandler;
 import com.example.expensemate.viewmodel.TransactionViewModel;
 
+import java.util.Collections;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -26,11 +33,16 @@ public class SmsMonitorService extends Service {
     private static final String TAG = "SmsMonitorService";
     private static final int NOTIFICATION_ID = 1;
     private static final String CHANNEL_ID = "SmsMonitorChannel";
+    // How far back the first catch-up looks when no scan has recorded a checkpoint yet
+    private static final long CATCH_UP_WITHOUT_CHECKPOINT_MILLIS = 3L * 24 * 60 * 60 * 1000;
+    // Least time between two saves of the parser stats for received messages, the rest are saved on destroy
+    private static final long PARSER_STATS_SAVE_INTERVAL_MILLIS = 15L * 60 * 1000;
 
     private SmsReceiver smsReceiver;
     private TransactionViewModel transactionViewModel;
     private ExecutorService executorService;
     private boolean isReceiverRegistered = false;
+    private long parserStatsSavedMillis; // Only used on the executor
 
     @Override
     public void onCreate() {
@@ -38,6 +50,8 @@ public class SmsMonitorService extends Service {
         Log.d(TAG, "Service created");
         transactionViewModel = new TransactionViewModel(getApplication());
         executorService = Executors.newSingleThreadExecutor();
+        // Loaded once for the life of the service, not for every message
+        executorService.execute(() -> SmsTransactionHandler.loadParserStats(this));
         smsReceiver = new SmsReceiver((smsBody, sender) -> processSms(smsBody, sender));
         createNotificationChannel();
     }
@@ -57,6 +71,9 @@ public class SmsMonitorService extends Service {
             Log.d(TAG, "SMS receiver registered");
         }
 
+        // Messages that arrived while the service was not running never reached the receiver
+        executorService.execute(this::catchUpMissedSms);
+
         return START_STICKY;
     }
 
@@ -77,6 +94,8 @@ public class SmsMonitorService extends Service {
         }
 
         if (executorService != null) {
+            // Runs after the messages still queued
+            executorService.execute(this::saveParserStats);
             executorService.shutdown();
         }
     }
@@ -116,10 +135,55 @@ public class SmsMonitorService extends Service {
                 .build();
     }
 
+    /**
+     * Imports the inbox messages newer than the scan checkpoint, or those of the last few days if
+     * the inbox was never scanned, and advances the checkpoint
+     */
+    private void catchUpMissedSms() {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.READ_SMS) != PackageManager.PERMISSION_GRANTED) {
+            Log.d(TAG, "No SMS read permission, skipping catch-up");
+            return;
+        }
+        SmsInboxReader reader = new SmsInboxReader(getContentResolver(), SmsInboxReader.INBOX);
+        SmsScanCheckpoint checkpoint = new SmsScanCheckpoint(this, reader.getInbox(),
+                SmsTransactionHandler.getParserSignature());
+        long fromMillis = checkpoint.getLastSmsId() >= 0
+                ? checkpoint.getCoveredFromMillis()
+                : System.currentTimeMillis() - CATCH_UP_WITHOUT_CHECKPOINT_MILLIS;
+        reader.setAfterSmsId(checkpoint.getLastSmsId()).setDateRange(fromMillis, Long.MAX_VALUE);
+
+        try {
+            SmsScanPipeline.Result result = new SmsScanPipeline(transactionViewModel, null).run(reader);
+            // Every sender was read, but only above the checkpoint, whose coverage stays what it was.
+            // Messages that failed to import stay above it for the next catch-up or scan
+            checkpoint.advance(fromMillis, result.getProcessedSmsId(),
+                    checkpoint.getLastSmsId() < 0 || checkpoint.isAllSenders());
+            saveParserStats();
+            Log.d(TAG, "Catch-up read " + result.processedCount + " SMS, created " + result.createdCount +
+                    " transactions, " + result.errorCount + " failed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error catching up on missed SMS", e);
+        }
+    }
+
     private void processSms(String smsBody, String sender) {
         executorService.execute(() -> {
             Log.d(TAG, "Processing SMS automatically: " + smsBody);
-            SmsTransactionHandler.handleSms(smsBody, sender, transactionViewModel, null);
+            // Inserted on this thread rather than the view model's executor, so live messages and the
+            // catch-up never insert concurrently
+            SmsTransactionHandler.handleSmsBatch(
+                    Collections.singletonList(new SmsTransactionHandler.InboxSms(smsBody, sender, null)),
+                    transactionViewModel);
+            if (System.currentTimeMillis() - parserStatsSavedMillis >= PARSER_STATS_SAVE_INTERVAL_MILLIS) {
+                saveParserStats();
+            }
         });
     }
+
+    private void saveParserStats() {
+        SmsTransactionHandler.saveParserStats(this);
+        parserStatsSavedMillis = System.currentTimeMillis();
+    }
 } 
\ No newline at end of file
@@ -12,12 +12,14 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.LoadState;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.expensemate.R;
 import com.example.expensemate.data.Account;
 import com.example.expensemate.databinding.FragmentAccountDetailsBinding;
 import com.example.expensemate.ui.transactions.TransactionsAdapter;
+import com.example.expensemate.utils.MoneyUtils;
 import com.example.expensemate.viewmodel.AccountViewModel;
 import com.example.expensemate.viewmodel.TransactionViewModel;
 import com.google.android.material.button.MaterialButton;
@@ -26,8 +28,8 @@ import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+
+import kotlin.Unit;
 
 public class AccountDetailsFragment extends Fragment {
     private static final String TAG = "AccountDetailsFragment";
@@ -35,16 +37,15 @@ public class AccountDetailsFragment extends Fragment {
     private AccountViewModel accountViewModel;
     private TransactionViewModel transactionViewModel;
     private TransactionsAdapter adapter;
-    private ExecutorService executorService;
     private Calendar startDate;
     private Calendar endDate;
     private SimpleDateFormat dateFormat;
     private long accountId;
+    private boolean refreshing;
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        executorService = Executors.newSingleThreadExecutor();
         dateFormat = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
         
         // Initialize dates
@@ -77,8 +78,9 @@ public class AccountDetailsFragment extends Fragment {
         updateDateButtonTexts();
         setupDateButtons();
 
-        // Calculate initial balance and load transactions
-        calculateTotalBalance();
+        // Observe balance and load transactions
+        observeTotalBalance();
+        observeTransactions();
         loadTransactions();
 
         return root;
@@ -127,42 +129,41 @@ public class AccountDetailsFragment extends Fragment {
         binding.btnEndDate.setText(dateFormat.format(endDate.getTime()));
     }
 
-    private void calculateTotalBalance() {
-        executorService.execute(() -> {
-            double totalIncome = transactionViewModel.getTotalIncomeForAccount(accountId);
-            double totalExpense = transactionViewModel.getTotalExpenseForAccount(accountId);
-            double balance = totalIncome - totalExpense;
-            
-            requireActivity().runOnUiThread(() -> {
-                TextView balanceText = binding.tvTotalBalance;
-                balanceText.setText(String.format("₹%.2f", balance));
-                balanceText.setTextColor(requireContext().getColor(
-                    balance >= 0 ? R.color.credit_color : R.color.debit_color
-                ));
-            });
+    private void observeTotalBalance() {
+        accountViewModel.getAccountBalances().observe(getViewLifecycleOwner(), balances -> {
+            Long balancePaise = balances.get(accountId);
+            long balance = balancePaise != null ? balancePaise : 0;
+            TextView balanceText = binding.tvTotalBalance;
+            balanceText.setText(MoneyUtils.format(balance));
+            balanceText.setTextColor(requireContext().getColor(
+                balance >= 0 ? R.color.credit_color : R.color.debit_color
+            ));
         });
     }
 
-    private void loadTransactions() {
-        transactionViewModel.getTransactionsByDateRangeAndAccount(
-            startDate.getTime(),
-            endDate.getTime(),
-            accountId
-        ).observe(getViewLifecycleOwner(), transactions -> {
-            adapter.submitList(transactions);
-            binding.tvEmptyState.setVisibility(
-                transactions != null && transactions.isEmpty() ? View.VISIBLE : View.GONE
-            );
-            // Always scroll to top when transactions change
-            if (transactions != null && !transactions.isEmpty()) {
-                binding.rvTransactions.postDelayed(() -> {
+    private void observeTransactions() {
+        transactionViewModel.getAccountTransactions().observe(getViewLifecycleOwner(), pagingData -> {
+            adapter.submitData(getViewLifecycleOwner().getLifecycle(), pagingData);
+        });
+        adapter.addLoadStateListener(loadStates -> {
+            if (loadStates.getRefresh() instanceof LoadState.Loading) {
+                refreshing = true;
+            } else if (refreshing && binding != null && loadStates.getRefresh() instanceof LoadState.NotLoading) {
+                refreshing = false;
+                binding.tvEmptyState.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+                // Always scroll to top when transactions change
+                if (adapter.getItemCount() > 0) {
                     binding.rvTransactions.scrollToPosition(0);
-                    binding.rvTransactions.smoothScrollToPosition(0);
-                }, 100);
+                }
             }
+            return Unit.INSTANCE;
         });
     }
 
+    private void loadTransactions() {
+        transactionViewModel.setAccountTransactionFilter(startDate.getTime(), endDate.getTime(), accountId);
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
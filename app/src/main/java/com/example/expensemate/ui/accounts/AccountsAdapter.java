@@ -11,13 +11,17 @@ import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.expensemate.R;
 import com.example.expensemate.data.Account;
+import com.example.expensemate.utils.MoneyUtils;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Locale;
+import java.util.Map;
 
 public class AccountsAdapter extends ListAdapter<Account, AccountsAdapter.AccountViewHolder> {
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
     private OnAccountClickListener listener;
     private Account defaultAccount;
+    private Map<Long, Long> balances = Collections.emptyMap();
 
     public AccountsAdapter(OnAccountClickListener listener) {
         super(new DiffUtil.ItemCallback<Account>() {
@@ -48,6 +52,11 @@ public class AccountsAdapter extends ListAdapter<Account, AccountsAdapter.Accoun
         notifyDataSetChanged();
     }
 
+    public void setBalances(Map<Long, Long> balances) {
+        this.balances = balances != null ? balances : Collections.emptyMap();
+        notifyDataSetChanged();
+    }
+
     @NonNull
     @Override
     public AccountViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -69,6 +78,7 @@ public class AccountsAdapter extends ListAdapter<Account, AccountsAdapter.Accoun
         private final TextView expiryDateTextView;
         private final TextView descriptionTextView;
         private final TextView defaultAccountIndicator;
+        private final TextView balanceTextView;
         private final ImageButton editButton;
         private final ImageButton deleteButton;
         private final ImageButton setDefaultButton;
@@ -81,6 +91,7 @@ public class AccountsAdapter extends ListAdapter<Account, AccountsAdapter.Accoun
             expiryDateTextView = itemView.findViewById(R.id.account_expiry);
             descriptionTextView = itemView.findViewById(R.id.account_description);
             defaultAccountIndicator = itemView.findViewById(R.id.default_account_indicator);
+            balanceTextView = itemView.findViewById(R.id.account_balance);
             editButton = itemView.findViewById(R.id.btn_edit);
             deleteButton = itemView.findViewById(R.id.btn_delete);
             setDefaultButton = itemView.findViewById(R.id.btn_set_default);
@@ -116,6 +127,12 @@ public class AccountsAdapter extends ListAdapter<Account, AccountsAdapter.Accoun
 
         public void bind(Account account) {
             nameTextView.setText(account.getName());
+
+            Long balancePaise = balances.get(account.getId());
+            long balance = balancePaise != null ? balancePaise : 0;
+            balanceTextView.setText(MoneyUtils.format(balance));
+            balanceTextView.setTextColor(itemView.getContext().getColor(
+                    balance >= 0 ? R.color.credit_color : R.color.debit_color));
             
             if (account.isDefault()) {
                 defaultAccountIndicator.setVisibility(View.VISIBLE);
@@ -64,6 +64,10 @@ public class AccountsFragment extends Fragment implements AccountsAdapter.OnAcco
             adapter.setDefaultAccount(defaultAccount);
         });
 
+        accountViewModel.getAccountBalances().observe(getViewLifecycleOwner(), balances -> {
+            adapter.setBalances(balances);
+        });
+
         return view;
     }
 
@@ -16,6 +16,7 @@ import com.example.expensemate.R;
 import com.example.expensemate.data.Account;
 import com.example.expensemate.viewmodel.AccountViewModel;
 import com.example.expensemate.viewmodel.TransactionViewModel;
+import com.example.expensemate.utils.MoneyUtils;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -130,14 +131,14 @@ public class ExpenseFragment extends Fragment {
         // Observe total expense
         transactionViewModel.getTotalExpense().observe(getViewLifecycleOwner(), total -> {
             Log.d(TAG, "Total expense changed: " + total);
-            totalExpenseText.setText(formatter.format(total != null ? total : 0.0));
+            totalExpenseText.setText(formatter.format(MoneyUtils.toRupees(total != null ? total : 0L)));
             updateBalance();
         });
 
         // Observe total income
         transactionViewModel.getTotalIncome().observe(getViewLifecycleOwner(), total -> {
             Log.d(TAG, "Total income changed: " + total);
-            totalIncomeText.setText(formatter.format(total != null ? total : 0.0));
+            totalIncomeText.setText(formatter.format(MoneyUtils.toRupees(total != null ? total : 0L)));
             updateBalance();
         });
 
@@ -159,11 +160,11 @@ public class ExpenseFragment extends Fragment {
     }
 
     private void updateBalance() {
-        Double income = transactionViewModel.getTotalIncome().getValue();
-        Double expense = transactionViewModel.getTotalExpense().getValue();
+        Long income = transactionViewModel.getTotalIncome().getValue();
+        Long expense = transactionViewModel.getTotalExpense().getValue();
         
-        double balance = (income != null ? income : 0.0) - (expense != null ? expense : 0.0);
-        String formattedBalance = formatter.format(balance);
+        long balance = (income != null ? income : 0L) - (expense != null ? expense : 0L);
+        String formattedBalance = formatter.format(MoneyUtils.toRupees(balance));
         
         // Set color based on whether balance is positive or negative
         int colorResId = balance >= 0 ? R.color.credit_color : R.color.debit_color;
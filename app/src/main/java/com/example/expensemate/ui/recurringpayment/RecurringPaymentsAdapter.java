@@ -13,6 +13,7 @@ import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.expensemate.R;
 import com.example.expensemate.data.RecurringPayment;
+import com.example.expensemate.utils.MoneyUtils;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
@@ -34,7 +35,7 @@ public class RecurringPaymentsAdapter extends ListAdapter<RecurringPayment, Recu
             @Override
             public boolean areContentsTheSame(@NonNull RecurringPayment oldItem, @NonNull RecurringPayment newItem) {
                 return oldItem.getName().equals(newItem.getName()) &&
-                       oldItem.getAmount() == newItem.getAmount() &&
+                       oldItem.getAmountPaise() == newItem.getAmountPaise() &&
                        oldItem.getDueDay() == newItem.getDueDay() &&
                        oldItem.getExpiryDate().equals(newItem.getExpiryDate()) &&
                        oldItem.isCompleted() == newItem.isCompleted();
@@ -131,7 +132,7 @@ public class RecurringPaymentsAdapter extends ListAdapter<RecurringPayment, Recu
 
         public void bind(RecurringPayment payment) {
             nameTextView.setText(payment.getName());
-            amountTextView.setText(String.format(Locale.getDefault(), "₹%.2f", payment.getAmount()));
+            amountTextView.setText(MoneyUtils.format(payment.getAmountPaise()));
             dueDateTextView.setText(String.format(Locale.getDefault(), "Day %d of every month", payment.getDueDay()));
             expiryDateTextView.setText(dateFormat.format(payment.getExpiryDate()));
 
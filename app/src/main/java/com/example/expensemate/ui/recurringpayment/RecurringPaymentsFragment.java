@@ -21,6 +21,7 @@ import com.example.expensemate.databinding.DialogEditRecurringPaymentBinding;
 import com.example.expensemate.ui.DatePickerHelper;
 import com.example.expensemate.ui.common.BaseDialogHelper;
 import com.example.expensemate.viewmodel.RecurringPaymentsViewModel;
+import com.example.expensemate.utils.MoneyUtils;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import java.util.Date;
 import java.text.SimpleDateFormat;
@@ -89,14 +90,14 @@ public class RecurringPaymentsFragment extends Fragment {
         // Observe total amount
         viewModel.getTotalAmount().observe(getViewLifecycleOwner(), total -> {
             if (total != null) {
-                totalAmountTextView.setText(String.format(Locale.getDefault(), "Total: ₹%.2f", total));
+                totalAmountTextView.setText("Total: " + MoneyUtils.format(total));
             }
         });
 
         // Observe remaining amount
         viewModel.getRemainingAmount().observe(getViewLifecycleOwner(), remaining -> {
             if (remaining != null) {
-                remainingAmountTextView.setText(String.format(Locale.getDefault(), "Remaining: ₹%.2f", remaining));
+                remainingAmountTextView.setText("Remaining: " + MoneyUtils.format(remaining));
             }
         });
 
@@ -129,7 +130,7 @@ public class RecurringPaymentsFragment extends Fragment {
                         }
 
                         try {
-                            double amount = Double.parseDouble(amountStr);
+                            long amountPaise = MoneyUtils.parseRupees(amountStr);
                             int dueDay = Integer.parseInt(dueDayStr);
                             
                             if (dueDay < 1 || dueDay > 31) {
@@ -137,7 +138,7 @@ public class RecurringPaymentsFragment extends Fragment {
                                 return;
                             }
                             
-                            RecurringPayment payment = new RecurringPayment(name, amount, dueDay, expiryDate);
+                            RecurringPayment payment = new RecurringPayment(name, amountPaise, dueDay, expiryDate);
                             viewModel.insert(payment);
                             Toast.makeText(requireContext(), "Payment added", Toast.LENGTH_SHORT).show();
                             dialog.dismiss();
@@ -161,7 +162,7 @@ public class RecurringPaymentsFragment extends Fragment {
 
         // Pre-fill the fields
         dialogBinding.etPaymentName.setText(payment.getName());
-        dialogBinding.etAmount.setText(String.valueOf(payment.getAmount()));
+        dialogBinding.etAmount.setText(MoneyUtils.toPlainString(payment.getAmountPaise()));
         dialogBinding.etDueDate.setText(String.valueOf(payment.getDueDay()));
         
         // Set up expiry date picker with initial date
@@ -194,7 +195,7 @@ public class RecurringPaymentsFragment extends Fragment {
                         }
 
                         try {
-                            double amount = Double.parseDouble(amountStr);
+                            long amountPaise = MoneyUtils.parseRupees(amountStr);
                             int dueDay = Integer.parseInt(dueDayStr);
                             
                             if (dueDay < 1 || dueDay > 31) {
@@ -203,7 +204,7 @@ public class RecurringPaymentsFragment extends Fragment {
                             }
                             
                             // Create a new payment object with updated values
-                            RecurringPayment updatedPayment = new RecurringPayment(name, amount, dueDay, expiryDate);
+                            RecurringPayment updatedPayment = new RecurringPayment(name, amountPaise, dueDay, expiryDate);
                             updatedPayment.setId(payment.getId());
                             updatedPayment.setCompleted(payment.isCompleted());
                             updatedPayment.setLastCompletedDate(payment.getLastCompletedDate());
@@ -20,6 +20,7 @@ import com.example.expensemate.databinding.FragmentSelfTransferBinding;
 import com.example.expensemate.viewmodel.AccountViewModel;
 import com.example.expensemate.viewmodel.CategoryViewModel;
 import com.example.expensemate.viewmodel.TransactionViewModel;
+import com.example.expensemate.utils.MoneyUtils;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -214,12 +215,12 @@ public class SelfTransferFragment extends Fragment {
             return;
         }
 
-        double amount = Double.parseDouble(amountStr);
+        long amountPaise = MoneyUtils.parseRupees(amountStr);
         Date date = calendar.getTime();
 
         // Create debit transaction for from account
         Transaction debitTransaction = new Transaction(
-            amount,
+            amountPaise,
             description,
             date,
             "DEBIT",
@@ -232,7 +233,7 @@ public class SelfTransferFragment extends Fragment {
 
         // Create credit transaction for to account
         Transaction creditTransaction = new Transaction(
-            amount,
+            amountPaise,
             description,
             date,
             "CREDIT",
@@ -1,11 +1,7 @@
 package com.example.expensemate.ui.sms;
 
 import android.app.DatePickerDialog;
-import android.content.ContentResolver;
-import android.database.Cursor;
-import android.net.Uri;
 import android.os.Bundle;
-import android.provider.Telephony;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -15,17 +11,20 @@ import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
 import androidx.lifecycle.ViewModelProvider;
 import com.example.expensemate.R;
+import com.example.expensemate.data.SmsScanCheckpoint;
 import com.example.expensemate.databinding.FragmentSmsScanBinding;
+import com.example.expensemate.util.SmsInboxReader;
+import com.example.expensemate.util.SmsParserStats;
+import com.example.expensemate.util.SmsScanPipeline;
 import com.example.expensemate.util.SmsTransactionHandler;
 import com.example.expensemate.viewmodel.TransactionViewModel;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
-import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import android.Manifest;
@@ -54,6 +53,11 @@ public class SmsScanFragment extends Fragment {
         toDate = Calendar.getInstance();
         setupDatePickers();
 
+        // Adaptive parser order is kept across runs, it takes effect when the next scan loads the stats
+        binding.cbAdaptiveParserOrder.setChecked(SmsParserStats.isAdaptiveOrder(requireContext()));
+        binding.cbAdaptiveParserOrder.setOnCheckedChangeListener((buttonView, isChecked) ->
+                SmsParserStats.setAdaptiveOrder(requireContext(), isChecked));
+
         // Setup scan button
         binding.btnScanSms.setOnClickListener(v -> scanSms());
 
@@ -112,128 +116,104 @@ public class SmsScanFragment extends Fragment {
 
         binding.btnScanSms.setEnabled(false);
         binding.tvScanStatus.setText("Scanning SMS...");
+        boolean bankSendersOnly = binding.cbBankSendersOnly.isChecked();
+        boolean fullRescan = binding.cbFullRescan.isChecked();
 
         executorService.execute(() -> {
             try {
-                ContentResolver contentResolver = requireContext().getContentResolver();
-                Uri uri = Uri.parse("content://sms/inbox");
-                String[] projection = {
-                    Telephony.Sms._ID,
-                    Telephony.Sms.ADDRESS,
-                    Telephony.Sms.BODY,
-                    Telephony.Sms.DATE
-                };
-
-                String selection = Telephony.Sms.DATE + " >= ? AND " + 
-                                 Telephony.Sms.DATE + " <= ?";
-                String[] selectionArgs = {
-                    String.valueOf(fromDate.getTimeInMillis()),
-                    String.valueOf(toDate.getTimeInMillis())
-                };
-
-                Cursor cursor = contentResolver.query(
-                    uri,
-                    projection,
-                    selection,
-                    selectionArgs,
-                    Telephony.Sms.DATE + " DESC"
-                );
-
-                int processedCount = 0;
-                int createdCount = 0;
-                List<String> unmatchedSms = new ArrayList<>();
-                List<String> duplicateSms = new ArrayList<>();
-                List<String> errorSms = new ArrayList<>();
-                List<String> success = new ArrayList<>();
-                List<String> allSms = new ArrayList<>();
-
-                if (cursor != null) {
-                    try {
-                        while (cursor.moveToNext()) {
-                            String sender = cursor.getString(cursor.getColumnIndexOrThrow(Telephony.Sms.ADDRESS));
-                            String body = cursor.getString(cursor.getColumnIndexOrThrow(Telephony.Sms.BODY));
-                            long date = cursor.getLong(cursor.getColumnIndexOrThrow(Telephony.Sms.DATE));
+                long scanStartMillis = System.currentTimeMillis();
+                SmsTransactionHandler.loadParserStats(requireContext());
+                long fromMillis = fromDate.getTimeInMillis();
+                long toMillis = toDate.getTimeInMillis();
+                SmsInboxReader reader = new SmsInboxReader(requireContext().getContentResolver(), SmsInboxReader.INBOX);
+                SmsScanCheckpoint checkpoint = new SmsScanCheckpoint(requireContext(), reader.getInbox(),
+                        SmsTransactionHandler.getParserSignature());
+                // A full rescan reads messages imported before again, e.g. after a wrongly parsed transaction
+                // was deleted. Those still stored are skipped as duplicates
+                boolean incremental = !fullRescan && checkpoint.covers(fromMillis, !bankSendersOnly);
+                long coveredFromMillis = incremental ? checkpoint.getCoveredFromMillis() : fromMillis;
+                boolean allSenders = incremental ? checkpoint.isAllSenders() : !bankSendersOnly;
+
+                reader.setDateRange(coveredFromMillis, toMillis);
+                if (incremental) {
+                    // The range was scanned before, only messages that arrived since are read. They are read
+                    // from the start of the scanned range and from every sender, so the checkpoint keeps
+                    // holding for all of it
+                    reader.setAfterSmsId(checkpoint.getLastSmsId());
+                    Log.d("SmsScanFragment", "Scanning SMS after _ID " + checkpoint.getLastSmsId());
+                } else if (bankSendersOnly) {
+                    // Personal and promotional messages stay in the provider instead of going through the parsers
+                    Set<String> senderHeaders = SmsTransactionHandler.getTransactionalSenderHeaders(viewModel);
+                    reader.addSenderHeaders(senderHeaders);
+                    Log.d("SmsScanFragment", "Scanning SMS from " + senderHeaders.size() + " sender headers");
+                }
 
-                            processedCount++;
-                            Log.d("SmsScanFragment", "Processing the scanned SMS: " + body);
-                            allSms.add(body);
-                            
-                            SmsTransactionHandler.TransactionResult result = 
-                                SmsTransactionHandler.handleSms(body, sender, viewModel, new Date(date));
-                            if (result.success) {
-                                success.add(body);
-                                createdCount++;
-                            } else {
-                                switch (result.reason) {
-                                    case "No transaction pattern matched in SMS":
-                                        unmatchedSms.add(body);
-                                        break;
-                                    case "Duplicate transaction detected":
-                                        duplicateSms.add(body);
-                                        break;
-                                    default:
-                                        errorSms.add(body + " (Error: " + result.reason + ")");
-                                        break;
-                                }
-                            }
-                        }
-                    } finally {
-                        cursor.close();
+                SmsScanPipeline pipeline = new SmsScanPipeline(viewModel, (readCount, createdCount) -> {
+                    // Called on the writer thread, the fragment may have been detached since the scan started
+                    FragmentActivity activity = getActivity();
+                    if (activity == null) {
+                        return;
                     }
+                    activity.runOnUiThread(() -> {
+                        if (binding != null) {
+                            binding.tvScanStatus.setText(String.format(
+                                    "Scanning SMS...\nRead %d SMS\nCreated %d transactions",
+                                    readCount, createdCount));
+                        }
+                    });
+                });
+                SmsScanPipeline.Result scanResult = pipeline.run(reader);
+                SmsTransactionHandler.saveParserStats(requireContext());
+                // Only a range reaching the present leaves nothing unread below the highest _ID. Messages
+                // that failed to import stay above the checkpoint, so the next scan tries them again
+                if (toMillis >= scanStartMillis) {
+                    checkpoint.advance(coveredFromMillis, scanResult.getProcessedSmsId(), allSenders);
                 }
 
-                final int finalProcessedCount = processedCount;
-                final int finalCreatedCount = createdCount;
+                final int finalProcessedCount = scanResult.processedCount;
+                final int finalCreatedCount = scanResult.createdCount;
+                final int finalErrorCount = scanResult.errorCount;
 
-                // Log unmatched SMS to console
                 Log.i("SmsScanFragment", "=== Scan Results ===");
-                Log.i("SmsScanFragment", String.format("Processed %d SMS, Created %d transactions", 
-                    finalProcessedCount, finalCreatedCount));
-
-//                if (!allSms.isEmpty()) {
-//                    Log.i("SmsScanFragment", "\n=== All SMS (" + allSms.size() + ") ===");
-//                    for (String sms : allSms) {
-//                        Log.i("SmsScanFragment", "\n" + sms);
-//                    }
-//                }
-
-                if (!success.isEmpty()) {
-                    Log.i("SmsScanFragment", "\n=== Success SMS (" + success.size() + ") ===");
-                    for (String sms : success) {
-                        Log.i("SmsScanFragment", "Success: " + sms);
-                    }
-                }
-
-                if (!unmatchedSms.isEmpty()) {
-                    Log.i("SmsScanFragment", "\n=== Unmatched SMS (" + unmatchedSms.size() + ") ===");
-                    for (String sms : unmatchedSms) {
+                Log.i("SmsScanFragment", String.format(
+                    "Processed %d SMS, Created %d transactions, %d duplicates, %d unmatched, %d errors",
+                    finalProcessedCount, finalCreatedCount, scanResult.duplicateCount,
+                    scanResult.unmatchedCount, scanResult.errorCount));
+
+                if (!scanResult.unmatchedSamples.isEmpty()) {
+                    Log.i("SmsScanFragment", "\n=== Unmatched SMS (first " + scanResult.unmatchedSamples.size() +
+                        " of " + scanResult.unmatchedCount + ") ===");
+                    for (String sms : scanResult.unmatchedSamples) {
                         Log.i("", "" + sms);
                     }
                 }
 
-                if (!duplicateSms.isEmpty()) {
-                    Log.i("SmsScanFragment", "\n=== Duplicate SMS (" + duplicateSms.size() + ") ===");
-                    for (String sms : duplicateSms) {
-                        Log.i("SmsScanFragment", "Duplicate: " + sms);
-                    }
-                }
-
-                if (!errorSms.isEmpty()) {
-                    Log.i("SmsScanFragment", "\n=== Error SMS (" + errorSms.size() + ") ===");
-                    for (String sms : errorSms) {
+                if (!scanResult.errorSamples.isEmpty()) {
+                    Log.i("SmsScanFragment", "\n=== Error SMS (first " + scanResult.errorSamples.size() +
+                        " of " + scanResult.errorCount + ") ===");
+                    for (String sms : scanResult.errorSamples) {
                         Log.i("SmsScanFragment", "Error: " + sms);
                     }
                 }
+                Log.i("SmsScanFragment", "\n=== Parser Stats ===");
+                for (String line : SmsTransactionHandler.getParserStats().describe()) {
+                    Log.i("SmsScanFragment", line);
+                }
                 Log.i("SmsScanFragment", "=== End of Scan Results ===\n");
 
                 // Update UI with just the basic status
                 requireActivity().runOnUiThread(() -> {
                     binding.btnScanSms.setEnabled(true);
-                    binding.tvScanStatus.setText(String.format(
+                    String status = String.format(
                         "Scan complete!\nProcessed %d SMS\nCreated %d transactions",
                         finalProcessedCount,
                         finalCreatedCount
-                    ));
+                    );
+                    if (finalErrorCount > 0) {
+                        status += String.format("\n%d SMS could not be imported, the next scan retries them",
+                                finalErrorCount);
+                    }
+                    binding.tvScanStatus.setText(status);
                 });
 
             } catch (SecurityException e) {
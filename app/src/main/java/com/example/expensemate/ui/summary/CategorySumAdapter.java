@@ -8,6 +8,7 @@ import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.expensemate.R;
 import com.example.expensemate.data.CategorySum;
+import com.example.expensemate.utils.MoneyUtils;
 import com.example.expensemate.databinding.ItemCategorySumBinding;
 
 public class CategorySumAdapter extends ListAdapter<CategorySum, CategorySumAdapter.CategorySumViewHolder> {
@@ -65,7 +66,7 @@ public class CategorySumAdapter extends ListAdapter<CategorySum, CategorySumAdap
 
         public void bind(CategorySum categorySum) {
             binding.tvCategory.setText(categorySum.getCategory());
-            binding.tvAmount.setText(String.format("₹%.2f", categorySum.getTotal()));
+            binding.tvAmount.setText(MoneyUtils.format(categorySum.getTotalPaise()));
             binding.tvAmount.setTextColor(itemView.getContext().getColor(
                 isIncome ? R.color.credit_color : R.color.debit_color
             ));
@@ -81,7 +82,7 @@ public class CategorySumAdapter extends ListAdapter<CategorySum, CategorySumAdap
         @Override
         public boolean areContentsTheSame(@NonNull CategorySum oldItem, @NonNull CategorySum newItem) {
             return oldItem.getCategory().equals(newItem.getCategory()) &&
-                   oldItem.getTotal() == newItem.getTotal();
+                   oldItem.getTotalPaise() == newItem.getTotalPaise();
         }
     }
 } 
\ No newline at end of file
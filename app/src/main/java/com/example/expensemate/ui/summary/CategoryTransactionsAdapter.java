@@ -10,12 +10,13 @@ import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.expensemate.R;
-import com.example.expensemate.data.Transaction;
+import com.example.expensemate.data.TransactionListItem;
+import com.example.expensemate.utils.MoneyUtils;
 import com.example.expensemate.databinding.ItemTransactionBinding;
 import java.text.SimpleDateFormat;
 import java.util.Locale;
 
-public class CategoryTransactionsAdapter extends ListAdapter<Transaction, CategoryTransactionsAdapter.TransactionViewHolder> {
+public class CategoryTransactionsAdapter extends ListAdapter<TransactionListItem, CategoryTransactionsAdapter.TransactionViewHolder> {
     private final SimpleDateFormat dateFormat;
     private final Context context;
 
@@ -53,8 +54,8 @@ public class CategoryTransactionsAdapter extends ListAdapter<Transaction, Catego
             binding.btnDelete.setVisibility(View.GONE);
         }
 
-        public void bind(Transaction transaction) {
-            binding.tvAmount.setText(String.format("₹%.2f", transaction.getAmount()));
+        public void bind(TransactionListItem transaction) {
+            binding.tvAmount.setText(MoneyUtils.format(transaction.getAmountPaise()));
             binding.tvAmount.setTextColor(context.getColor(
                     transaction.getTransactionType().equals("DEBIT") ? R.color.debit_color : R.color.credit_color));
             binding.tvDate.setText(String.format("Date: %s", dateFormat.format(transaction.getDate())));
@@ -83,15 +84,15 @@ public class CategoryTransactionsAdapter extends ListAdapter<Transaction, Catego
         }
     }
 
-    private static class TransactionDiffCallback extends DiffUtil.ItemCallback<Transaction> {
+    private static class TransactionDiffCallback extends DiffUtil.ItemCallback<TransactionListItem> {
         @Override
-        public boolean areItemsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+        public boolean areItemsTheSame(@NonNull TransactionListItem oldItem, @NonNull TransactionListItem newItem) {
             return oldItem.getId() == newItem.getId();
         }
 
         @Override
-        public boolean areContentsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
-            return oldItem.getAmount() == newItem.getAmount() &&
+        public boolean areContentsTheSame(@NonNull TransactionListItem oldItem, @NonNull TransactionListItem newItem) {
+            return oldItem.getAmountPaise() == newItem.getAmountPaise() &&
                    oldItem.getDescription().equals(newItem.getDescription()) &&
                    oldItem.getDate().equals(newItem.getDate()) &&
                    oldItem.getReceiverName().equals(newItem.getReceiverName()) &&
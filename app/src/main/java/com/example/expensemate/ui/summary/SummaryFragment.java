@@ -17,11 +17,12 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensemate.R;
 import com.example.expensemate.data.CategorySum;
-import com.example.expensemate.data.Transaction;
+import com.example.expensemate.data.TransactionListItem;
 import com.example.expensemate.databinding.FragmentSummaryBinding;
 import com.example.expensemate.data.Account;
 import com.example.expensemate.viewmodel.AccountViewModel;
 import com.example.expensemate.viewmodel.TransactionViewModel;
+import com.example.expensemate.utils.MoneyUtils;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -176,14 +177,14 @@ public class SummaryFragment extends Fragment {
         // Observe total expense
         viewModel.getTotalExpense().observe(getViewLifecycleOwner(), total -> {
             Log.d(TAG, "Total expense changed: " + total);
-            binding.tvTotalAmount.setText(String.format("\u20B9%.2f", total != null ? total : 0.0));
+            binding.tvTotalAmount.setText(MoneyUtils.format(total != null ? total : 0L));
             updateBalance();
         });
 
         // Observe total income
         viewModel.getTotalIncome().observe(getViewLifecycleOwner(), total -> {
             Log.d(TAG, "Total income changed: " + total);
-            binding.tvTotalIncome.setText(String.format("\u20B9%.2f", total != null ? total : 0.0));
+            binding.tvTotalIncome.setText(MoneyUtils.format(total != null ? total : 0L));
             updateBalance();
         });
 
@@ -238,7 +239,7 @@ public class SummaryFragment extends Fragment {
         }
     }
 
-    private void showCategoryTransactionsDialog(CategorySum categorySum, List<Transaction> transactions) {
+    private void showCategoryTransactionsDialog(CategorySum categorySum, List<TransactionListItem> transactions) {
         AlertDialog.Builder builder = new AlertDialog.Builder(requireContext());
         
         // Create custom title view
@@ -269,10 +270,10 @@ public class SummaryFragment extends Fragment {
     }
 
     private void updateBalance() {
-        Double income = viewModel.getTotalIncome().getValue();
-        Double expense = viewModel.getTotalExpense().getValue();
-        double balance = (income != null ? income : 0.0) - (expense != null ? expense : 0.0);
-        String formattedBalance = String.format("\u20B9%.2f", balance);
+        Long income = viewModel.getTotalIncome().getValue();
+        Long expense = viewModel.getTotalExpense().getValue();
+        long balance = (income != null ? income : 0L) - (expense != null ? expense : 0L);
+        String formattedBalance = MoneyUtils.format(balance);
         int colorResId = balance >= 0 ? R.color.credit_color : R.color.debit_color;
         binding.tvTotalBalance.setTextColor(requireContext().getColor(colorResId));
         binding.tvTotalBalance.setText(formattedBalance);
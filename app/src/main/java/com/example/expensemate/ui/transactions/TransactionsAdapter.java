@@ -15,17 +15,19 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.fragment.app.FragmentActivity;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.expensemate.R;
 import com.example.expensemate.data.Account;
 import com.example.expensemate.data.Category;
 import com.example.expensemate.data.RecurringPayment;
 import com.example.expensemate.data.Transaction;
+import com.example.expensemate.data.TransactionListItem;
 import com.example.expensemate.databinding.DialogEditTransactionBinding;
 import com.example.expensemate.databinding.ItemTransactionBinding;
 import com.example.expensemate.ui.common.BaseDialogHelper;
+import com.example.expensemate.utils.MoneyUtils;
 import com.example.expensemate.viewmodel.AccountViewModel;
 import com.example.expensemate.viewmodel.CategoryViewModel;
 import com.example.expensemate.viewmodel.RecurringPaymentsViewModel;
@@ -36,8 +38,9 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class TransactionsAdapter extends ListAdapter<Transaction, TransactionsAdapter.TransactionViewHolder> {
+public class TransactionsAdapter extends PagingDataAdapter<TransactionListItem, TransactionsAdapter.TransactionViewHolder> {
     private final TransactionViewModel viewModel;
     private final Context context;
     private final AccountViewModel accountViewModel;
@@ -227,7 +230,7 @@ public class TransactionsAdapter extends ListAdapter<Transaction, TransactionsAd
                             }
 
                             Transaction newTransaction = new Transaction(
-                                    Double.parseDouble(amountStr),
+                                    MoneyUtils.parseRupees(amountStr),
                                     description,
                                     calendar.getTime(),
                                     transactionType,
@@ -289,8 +292,10 @@ public class TransactionsAdapter extends ListAdapter<Transaction, TransactionsAd
 
     @Override
     public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
-        Transaction transaction = getItem(position);
-        holder.bind(transaction);
+        TransactionListItem transaction = getItem(position);
+        if (transaction != null) {
+            holder.bind(transaction);
+        }
     }
 
     class TransactionViewHolder extends RecyclerView.ViewHolder {
@@ -303,23 +308,28 @@ public class TransactionsAdapter extends ListAdapter<Transaction, TransactionsAd
             // Set up click listeners for edit and delete
             binding.btnEdit.setOnClickListener(v -> {
                 int position = getAdapterPosition();
-                if (position != RecyclerView.NO_POSITION) {
-                    showEditDialog(getItem(position));
+                if (position != RecyclerView.NO_POSITION && getItem(position) != null) {
+                    // List rows leave out the SMS fields, load the whole transaction for editing
+                    viewModel.getTransactionById(getItem(position).getId()).observe((FragmentActivity) context, transaction -> {
+                        if (transaction != null) {
+                            showEditDialog(transaction);
+                        }
+                    });
                 }
             });
 
             binding.btnDelete.setOnClickListener(v -> {
                 int position = getAdapterPosition();
-                if (position != RecyclerView.NO_POSITION) {
+                if (position != RecyclerView.NO_POSITION && getItem(position) != null) {
                     showDeleteConfirmationDialog(getItem(position));
                 }
             });
         }
 
-        public void bind(Transaction transaction) {
-            binding.tvAmount.setText(String.format(Locale.getDefault(), "₹%.2f", transaction.getAmount()));
+        public void bind(TransactionListItem transaction) {
+            binding.tvAmount.setText(MoneyUtils.format(transaction.getAmountPaise()));
             if (transaction.getTransactionType() == null) {
-                Log.d("Transaction", "Transaction type is null. Not setting the colour. Id:"+ transaction.getId()+ ", Amount:"+ transaction.getAmount()+", Desc:"+transaction.getDescription());
+                Log.d("Transaction", "Transaction type is null. Not setting the colour. Id:"+ transaction.getId()+ ", Amount:"+ transaction.getAmountPaise()+", Desc:"+transaction.getDescription());
             } else {
                 binding.tvAmount.setTextColor(context.getColor(
                         transaction.getTransactionType().equals("DEBIT") ? R.color.debit_color : R.color.credit_color));
@@ -389,8 +399,7 @@ public class TransactionsAdapter extends ListAdapter<Transaction, TransactionsAd
             binding.cbExcludeFromSummary.setChecked(transaction.isExcludedFromSummary());
             binding.cbExcludeFromSummary.setOnCheckedChangeListener((buttonView, isChecked) -> {
                 if (isChecked != transaction.isExcludedFromSummary()) { // Only update if state actually changed
-                    transaction.setExcludedFromSummary(isChecked);
-                    viewModel.updateTransaction(transaction, transaction);
+                    viewModel.setExcludedFromSummary(transaction.getId(), isChecked);
                     Toast.makeText(context, 
                         isChecked ? "Transaction excluded from summary" : "Transaction included in summary", 
                         Toast.LENGTH_SHORT).show();
@@ -404,7 +413,7 @@ public class TransactionsAdapter extends ListAdapter<Transaction, TransactionsAd
             );
 
             // Pre-fill the fields
-            dialogBinding.etAmount.setText(String.valueOf(transaction.getAmount()));
+            dialogBinding.etAmount.setText(MoneyUtils.toPlainString(transaction.getAmountPaise()));
             dialogBinding.etDescription.setText(transaction.getDescription());
             dialogBinding.etReceiverName.setText(transaction.getReceiverName());
             dialogBinding.etCategory.setText(transaction.getCategory());
@@ -601,7 +610,7 @@ public class TransactionsAdapter extends ListAdapter<Transaction, TransactionsAd
                                 }
 
                                 Transaction updatedTransaction = new Transaction(
-                                        Double.parseDouble(amountStr),
+                                        MoneyUtils.parseRupees(amountStr),
                                         description,
                                         calendar.getTime(),
                                         transactionType,
@@ -662,7 +671,7 @@ public class TransactionsAdapter extends ListAdapter<Transaction, TransactionsAd
             dialogHelper.create().show();
         }
 
-        private void showDeleteConfirmationDialog(Transaction transaction) {
+        private void showDeleteConfirmationDialog(TransactionListItem transaction) {
             BaseDialogHelper dialogHelper = new BaseDialogHelper(
                     context,
                     "Delete Transaction",
@@ -689,20 +698,24 @@ public class TransactionsAdapter extends ListAdapter<Transaction, TransactionsAd
         }
     }
 
-    private static class TransactionDiffCallback extends DiffUtil.ItemCallback<Transaction> {
+    private static class TransactionDiffCallback extends DiffUtil.ItemCallback<TransactionListItem> {
         @Override
-        public boolean areItemsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+        public boolean areItemsTheSame(@NonNull TransactionListItem oldItem, @NonNull TransactionListItem newItem) {
             return oldItem.getId() == newItem.getId();
         }
 
+        // Rows are reloaded from the database after every change, so every field shown in a row is compared
         @Override
-        public boolean areContentsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
-            return oldItem.getAmount() == newItem.getAmount() &&
-                   oldItem.getDescription().equals(newItem.getDescription()) &&
-                   oldItem.getDate().equals(newItem.getDate()) &&
-                   oldItem.getReceiverName().equals(newItem.getReceiverName()) &&
-                   oldItem.getCategory().equals(newItem.getCategory()) &&
-                   oldItem.getTransactionType().equals(newItem.getTransactionType());
+        public boolean areContentsTheSame(@NonNull TransactionListItem oldItem, @NonNull TransactionListItem newItem) {
+            return oldItem.getAmountPaise() == newItem.getAmountPaise() &&
+                   Objects.equals(oldItem.getDescription(), newItem.getDescription()) &&
+                   Objects.equals(oldItem.getDate(), newItem.getDate()) &&
+                   Objects.equals(oldItem.getReceiverName(), newItem.getReceiverName()) &&
+                   Objects.equals(oldItem.getCategory(), newItem.getCategory()) &&
+                   Objects.equals(oldItem.getTransactionType(), newItem.getTransactionType()) &&
+                   Objects.equals(oldItem.getAccountId(), newItem.getAccountId()) &&
+                   Objects.equals(oldItem.getLinkedRecurringPaymentId(), newItem.getLinkedRecurringPaymentId()) &&
+                   oldItem.isExcludedFromSummary() == newItem.isExcludedFromSummary();
         }
     }
 } 
\ No newline at end of file
@@ -12,6 +12,7 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.LoadState;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.expensemate.R;
@@ -24,6 +25,7 @@ import com.example.expensemate.data.Account;
 import com.example.expensemate.data.Category;
 import com.example.expensemate.data.Transaction;
 import com.example.expensemate.data.RecurringPayment;
+import com.example.expensemate.utils.MoneyUtils;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -40,6 +42,8 @@ import android.app.DatePickerDialog;
 import com.google.android.material.datepicker.MaterialDatePicker;
 import java.util.TimeZone;
 
+import kotlin.Unit;
+
 public class TransactionsFragment extends Fragment {
     private static final String TAG = "TransactionsFragment";
     private FragmentTransactionsBinding binding;
@@ -118,12 +122,17 @@ public class TransactionsFragment extends Fragment {
         });
 
         applyDefaultDateFilter();
-        // Observe filtered transactions
-        viewModel.getFilteredTransactions().observe(getViewLifecycleOwner(), transactions -> {
-            Log.d(TAG, "Filtered transactions updated. Count: " + (transactions != null ? transactions.size() : 0));
-            adapter.submitList(transactions);
-            // Show/hide empty state
-            binding.tvEmptyState.setVisibility(transactions != null && transactions.isEmpty() ? View.VISIBLE : View.GONE);
+        // Observe filtered transactions, loaded a page at a time as the list scrolls
+        viewModel.getFilteredTransactions().observe(getViewLifecycleOwner(), pagingData -> {
+            Log.d(TAG, "Filtered transactions updated");
+            adapter.submitData(getViewLifecycleOwner().getLifecycle(), pagingData);
+        });
+        // Show/hide empty state once the first page is in
+        adapter.addLoadStateListener(loadStates -> {
+            if (binding != null && loadStates.getRefresh() instanceof LoadState.NotLoading) {
+                binding.tvEmptyState.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+            }
+            return Unit.INSTANCE;
         });
 
 
@@ -298,10 +307,10 @@ public class TransactionsFragment extends Fragment {
             String selectedToDate = etToDate.getText() != null ? 
                 etToDate.getText().toString().trim() : "";
             
-            Double amount = null;
+            Long amountPaise = null;
             if (!amountStr.isEmpty()) {
                 try {
-                    amount = Double.parseDouble(amountStr);
+                    amountPaise = MoneyUtils.parseRupees(amountStr);
                 } catch (NumberFormatException e) {
                     etAmount.setError("Invalid amount");
                     return;
@@ -323,7 +332,7 @@ public class TransactionsFragment extends Fragment {
                 description.isEmpty() ? null : description,
                 receiver.isEmpty() ? null : receiver,
                 category.isEmpty() ? null : category,
-                amount,
+                amountPaise,
                 transactionType.isEmpty() ? null : transactionType,
                 switchExcludeFromSummary.isChecked(),
                 linkedRecurringPaymentId,
@@ -0,0 +1,116 @@
+package com.example.expensemate.util;
+
+import java.util.Arrays;
+
+/**
+ * Aho-Corasick automaton over a fixed set of ASCII keywords.
+ * A single pass over the text reports which keywords occur in it as a bit mask
+ * (bit i is set when keywords[i] was found). Matching is case-insensitive.
+ */
+public final class KeywordAutomaton {
+    private static final int MAX_KEYWORDS = 64;
+
+    // Maps a lowercase ASCII char to its column in the transition table, 0 means "in no keyword"
+    private final byte[] charClass = new byte[128];
+    private final int alphabetSize;
+    private final int[] transitions;
+    private final long[] outputs;
+
+    public KeywordAutomaton(String... keywords) {
+        if (keywords.length > MAX_KEYWORDS) {
+            throw new IllegalArgumentException("At most " + MAX_KEYWORDS + " keywords are supported");
+        }
+
+        int classes = 1;
+        int maxStates = 1;
+        for (String keyword : keywords) {
+            if (keyword.isEmpty()) {
+                throw new IllegalArgumentException("Keywords must not be empty");
+            }
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = toLowerAscii(keyword.charAt(i));
+                if (c >= 128) {
+                    throw new IllegalArgumentException("Keyword is not ASCII: " + keyword);
+                }
+                if (charClass[c] == 0) {
+                    charClass[c] = (byte) classes++;
+                }
+            }
+            maxStates += keyword.length();
+        }
+        alphabetSize = classes;
+
+        // Build the keyword trie. State 0 is the root, which is never a child, so 0 doubles as "no edge".
+        int[] table = new int[maxStates * alphabetSize];
+        long[] out = new long[maxStates];
+        int states = 1;
+        for (int k = 0; k < keywords.length; k++) {
+            int state = 0;
+            String keyword = keywords[k];
+            for (int i = 0; i < keyword.length(); i++) {
+                int column = charClass[toLowerAscii(keyword.charAt(i))];
+                int next = table[state * alphabetSize + column];
+                if (next == 0) {
+                    next = states++;
+                    table[state * alphabetSize + column] = next;
+                }
+                state = next;
+            }
+            out[state] |= 1L << k;
+        }
+
+        // Breadth-first pass resolving failure links into a complete DFA
+        int[] fail = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int column = 1; column < alphabetSize; column++) {
+            int next = table[column];
+            if (next != 0) {
+                queue[tail++] = next;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            out[state] |= out[fail[state]];
+            for (int column = 1; column < alphabetSize; column++) {
+                int index = state * alphabetSize + column;
+                int next = table[index];
+                int fallback = table[fail[state] * alphabetSize + column];
+                if (next != 0) {
+                    fail[next] = fallback;
+                    queue[tail++] = next;
+                } else {
+                    table[index] = fallback;
+                }
+            }
+        }
+
+        transitions = Arrays.copyOf(table, states * alphabetSize);
+        outputs = Arrays.copyOf(out, states);
+    }
+
+    /**
+     * Scans the text once and returns the set of keywords found in it
+     * @param text The text to scan
+     * @return Bit mask where bit i is set if keywords[i] occurs in the text
+     */
+    public long scan(CharSequence text) {
+        if (text == null) {
+            return 0L;
+        }
+        int state = 0;
+        long found = 0L;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = toLowerAscii(text.charAt(i));
+            int column = c < 128 ? charClass[c] : 0;
+            state = transitions[state * alphabetSize + column];
+            found |= outputs[state];
+        }
+        return found;
+    }
+
+    private static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
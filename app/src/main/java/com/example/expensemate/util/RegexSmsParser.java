@@ -0,0 +1,59 @@
+package com.example.expensemate.util;
+
+import com.example.expensemate.data.Transaction;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SmsParser backed by a single regular expression
+ */
+public class RegexSmsParser implements SmsParser {
+    public interface Extractor {
+        Transaction extract(Matcher matcher, String smsBody, String sender, Date receivedDate);
+    }
+
+    private final String name;
+    private final Pattern pattern;
+    private final long[] requiredAnchors;
+    private final Extractor extractor;
+
+    /**
+     * @param name Short name of the parser used in logs
+     * @param pattern The pattern to match the SMS body against
+     * @param requiredAnchors Anchor groups the pattern needs, at least one token of every group must be present
+     * @param extractor Builds the transaction from a successful match
+     */
+    public RegexSmsParser(String name, Pattern pattern, long[] requiredAnchors, Extractor extractor) {
+        this.name = name;
+        this.pattern = pattern;
+        this.requiredAnchors = requiredAnchors;
+        this.extractor = extractor;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getRules() {
+        return name + ": " + pattern.pattern();
+    }
+
+    @Override
+    public boolean mayMatch(long anchors) {
+        for (long group : requiredAnchors) {
+            if ((anchors & group) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Transaction parse(String smsBody, String sender, Date receivedDate) {
+        Matcher matcher = pattern.matcher(smsBody);
+        return matcher.find() ? extractor.extract(matcher, smsBody, sender, receivedDate) : null;
+    }
+}
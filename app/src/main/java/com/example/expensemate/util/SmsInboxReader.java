@@ -0,0 +1,146 @@
+package com.example.expensemate.util;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.Telephony;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Streams the messages of an SMS inbox to a consumer one at a time, so a scan holds no more than
+ * the row being read. Every filter is part of the provider query, rows that do not pass are never
+ * copied out of the provider.
+ */
+public class SmsInboxReader {
+    public static final Uri INBOX = Uri.parse("content://sms/inbox");
+
+    private static final String[] PROJECTION = {
+        Telephony.Sms._ID,
+        Telephony.Sms.ADDRESS,
+        Telephony.Sms.BODY,
+        Telephony.Sms.DATE
+    };
+
+    public interface Consumer {
+        /**
+         * @param smsId Telephony.Sms._ID of the message
+         */
+        void accept(long smsId, SmsTransactionHandler.InboxSms sms) throws InterruptedException;
+    }
+
+    private final ContentResolver contentResolver;
+    private final Uri inbox;
+    private long fromMillis = Long.MIN_VALUE;
+    private long toMillis = Long.MAX_VALUE;
+    private long afterSmsId = -1;
+    private final List<String> senderPatterns = new ArrayList<>(); // LIKE patterns, empty for all senders
+
+    public SmsInboxReader(ContentResolver contentResolver, Uri inbox) {
+        this.contentResolver = contentResolver;
+        this.inbox = inbox;
+    }
+
+    public Uri getInbox() {
+        return inbox;
+    }
+
+    /**
+     * Only reads messages dated from fromMillis to toMillis, both inclusive
+     */
+    public SmsInboxReader setDateRange(long fromMillis, long toMillis) {
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        return this;
+    }
+
+    /**
+     * Only reads messages with an _ID above afterSmsId
+     */
+    public SmsInboxReader setAfterSmsId(long afterSmsId) {
+        this.afterSmsId = afterSmsId;
+        return this;
+    }
+
+    /**
+     * Also reads messages whose sender address starts with one of the prefixes.
+     * Without any sender prefixes or headers, messages from all senders are read.
+     */
+    public SmsInboxReader addSenderPrefixes(String... senderPrefixes) {
+        for (String prefix : senderPrefixes) {
+            senderPatterns.add(escapeLike(prefix) + "%");
+        }
+        return this;
+    }
+
+    /**
+     * Also reads messages from the DLT sender headers, normalized as by SmsParserRegistry.normalizeSender.
+     * A header matches with or without the operator prefix and category suffix, "ICICIB" matches "AX-ICICIB-S".
+     */
+    public SmsInboxReader addSenderHeaders(Collection<String> senderHeaders) {
+        for (String header : senderHeaders) {
+            String escaped = escapeLike(header);
+            senderPatterns.add(escaped + "%");
+            senderPatterns.add("__-" + escaped + "%");
+        }
+        return this;
+    }
+
+    /**
+     * Reads the matching messages on the calling thread
+     * @return The highest _ID read, -1 if no message matched
+     * @throws SecurityException without the READ_SMS permission
+     */
+    public long read(Consumer consumer) throws InterruptedException {
+        StringBuilder selection = new StringBuilder();
+        List<String> selectionArgs = new ArrayList<>();
+        selection.append(Telephony.Sms._ID).append(" > ?");
+        selectionArgs.add(String.valueOf(afterSmsId));
+        if (fromMillis != Long.MIN_VALUE) {
+            selection.append(" AND ").append(Telephony.Sms.DATE).append(" >= ?");
+            selectionArgs.add(String.valueOf(fromMillis));
+        }
+        if (toMillis != Long.MAX_VALUE) {
+            selection.append(" AND ").append(Telephony.Sms.DATE).append(" <= ?");
+            selectionArgs.add(String.valueOf(toMillis));
+        }
+        if (!senderPatterns.isEmpty()) {
+            // LIKE ignores ASCII case, as sender headers do
+            selection.append(" AND (");
+            for (int i = 0; i < senderPatterns.size(); i++) {
+                if (i > 0) {
+                    selection.append(" OR ");
+                }
+                selection.append(Telephony.Sms.ADDRESS).append(" LIKE ? ESCAPE '\\'");
+                selectionArgs.add(senderPatterns.get(i));
+            }
+            selection.append(")");
+        }
+
+        long maxSmsId = -1;
+        try (Cursor cursor = contentResolver.query(inbox, PROJECTION, selection.toString(),
+                selectionArgs.toArray(new String[0]), Telephony.Sms._ID + " ASC")) {
+            if (cursor == null) {
+                return maxSmsId;
+            }
+            int idColumn = cursor.getColumnIndexOrThrow(Telephony.Sms._ID);
+            int addressColumn = cursor.getColumnIndexOrThrow(Telephony.Sms.ADDRESS);
+            int bodyColumn = cursor.getColumnIndexOrThrow(Telephony.Sms.BODY);
+            int dateColumn = cursor.getColumnIndexOrThrow(Telephony.Sms.DATE);
+            while (cursor.moveToNext()) {
+                long smsId = cursor.getLong(idColumn);
+                maxSmsId = Math.max(maxSmsId, smsId);
+                consumer.accept(smsId, new SmsTransactionHandler.InboxSms(
+                        cursor.getString(bodyColumn), cursor.getString(addressColumn), new Date(cursor.getLong(dateColumn))));
+            }
+        }
+        return maxSmsId;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
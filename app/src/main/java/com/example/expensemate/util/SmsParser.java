@@ -0,0 +1,39 @@
+package com.example.expensemate.util;
+
+import com.example.expensemate.data.Transaction;
+import java.util.Date;
+
+/**
+ * Parses the SMS format of one bank or payment method into a transaction
+ */
+public interface SmsParser {
+    /**
+     * @return Short name of the parser used in logs
+     */
+    String getName();
+
+    /**
+     * @return What the parser matches, it must change whenever the parser would match or extract
+     * differently. Compared across app versions to find out whether messages need parsing again.
+     */
+    default String getRules() {
+        return getName();
+    }
+
+    /**
+     * Cheap check run before {@link #parse}, based on the anchor tokens found in the SMS
+     * @param anchors Bit mask of anchor tokens found by the prefilter in SmsTransactionHandler
+     * @return false if the parser cannot possibly match the SMS
+     */
+    default boolean mayMatch(long anchors) {
+        return true;
+    }
+
+    /**
+     * @param smsBody The SMS message body
+     * @param sender The SMS sender
+     * @param receivedDate When the SMS was received, null for now
+     * @return Transaction object if the SMS matched, null otherwise
+     */
+    Transaction parse(String smsBody, String sender, Date receivedDate);
+}
@@ -0,0 +1,126 @@
+package com.example.expensemate.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Routes an SMS to the parsers registered for its sender.
+ * Bank SMS arrive with a DLT header such as "AX-ICICIB" or "VM-KOTAKB-S"; parsers are registered
+ * against the normalized header ("ICICIB", "KOTAKB") and the generic fallback parsers run for
+ * every sender after the sender specific ones.
+ */
+public class SmsParserRegistry {
+    private final Map<String, List<SmsParser>> parsersBySender = new HashMap<>();
+    private final List<SmsParser> fallbackParsers = new ArrayList<>();
+    // Replaced as a whole when reordered, so parser threads never see a list being sorted
+    private volatile List<SmsParser> orderedFallbackParsers = Collections.emptyList();
+
+    /**
+     * Registers a parser for one or more sender headers. Parsers run in registration order.
+     * @param parser The parser
+     * @param senderHeaders Normalized sender headers, e.g. "ICICIB"
+     */
+    public void register(SmsParser parser, String... senderHeaders) {
+        for (String header : senderHeaders) {
+            String key = normalizeSender(header);
+            List<SmsParser> parsers = parsersBySender.get(key);
+            if (parsers == null) {
+                parsers = new ArrayList<>();
+                parsersBySender.put(key, parsers);
+            }
+            parsers.add(parser);
+        }
+    }
+
+    /**
+     * Registers a parser that runs for every sender after the sender specific parsers
+     * @param parser The parser
+     */
+    public void registerFallback(SmsParser parser) {
+        fallbackParsers.add(parser);
+        orderFallbackParsers(null);
+    }
+
+    /**
+     * Changes the order the fallback parsers are tried in. The first matching parser wins, so a
+     * different order can pick another of two overlapping patterns.
+     * @param order Stable sort order, null for registration order
+     */
+    public void orderFallbackParsers(Comparator<SmsParser> order) {
+        List<SmsParser> parsers = new ArrayList<>(fallbackParsers);
+        if (order != null) {
+            Collections.sort(parsers, order);
+        }
+        orderedFallbackParsers = Collections.unmodifiableList(parsers);
+    }
+
+    /**
+     * @param sender The SMS sender as received, e.g. "AX-ICICIB"
+     * @return Parsers registered for the sender, empty if the sender is unknown
+     */
+    public List<SmsParser> getSenderParsers(String sender) {
+        String key = normalizeSender(sender);
+        List<SmsParser> parsers = key != null ? parsersBySender.get(key) : null;
+        return parsers != null ? parsers : Collections.emptyList();
+    }
+
+    public List<SmsParser> getFallbackParsers() {
+        return orderedFallbackParsers;
+    }
+
+    /**
+     * @return The normalized headers that have parsers registered
+     */
+    public Set<String> getSenderHeaders() {
+        return Collections.unmodifiableSet(parsersBySender.keySet());
+    }
+
+    /**
+     * @return Hash of the rules of every registered parser, in registration order. It changes when a
+     * parser is added, removed or edited, but not when the fallback parsers are reordered.
+     */
+    public int getSignature() {
+        StringBuilder rules = new StringBuilder();
+        for (String header : new TreeSet<>(parsersBySender.keySet())) {
+            rules.append(header).append('\n');
+            for (SmsParser parser : parsersBySender.get(header)) {
+                rules.append(parser.getRules()).append('\n');
+            }
+        }
+        rules.append("*\n");
+        for (SmsParser parser : fallbackParsers) {
+            rules.append(parser.getRules()).append('\n');
+        }
+        return rules.toString().hashCode();
+    }
+
+    /**
+     * Strips the operator prefix ("AX-") and the message category suffix ("-S", "-T") from a DLT sender
+     * @param sender The SMS sender as received
+     * @return Upper case sender header, null if the sender is null or blank
+     */
+    public static String normalizeSender(String sender) {
+        if (sender == null) {
+            return null;
+        }
+        String header = sender.trim().toUpperCase(Locale.ROOT);
+        if (header.isEmpty()) {
+            return null;
+        }
+        if (header.length() > 3 && header.charAt(2) == '-') {
+            header = header.substring(3);
+        }
+        int suffix = header.lastIndexOf('-');
+        if (suffix > 0 && suffix == header.length() - 2) {
+            header = header.substring(0, suffix);
+        }
+        return header;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.expensemate.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per parser counters of regex attempts, matches and time spent, keyed by SmsParser.getName.
+ * Safe to update from the parser threads of a scan. Kept across runs in shared preferences
+ * together with the adaptive order setting.
+ */
+public class SmsParserStats {
+    private static final String PREFS_NAME = "sms_parser_stats";
+    private static final String KEY_ADAPTIVE_ORDER = "adaptive_order";
+    private static final String KEY_ATTEMPTS = "_attempts";
+    private static final String KEY_HITS = "_hits";
+    private static final String KEY_NANOS = "_nanos";
+
+    public static class Counter {
+        private final AtomicLong attempts = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        public long getAttempts() {
+            return attempts.get();
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getNanos() {
+            return nanos.get();
+        }
+
+        /**
+         * Share of attempts that matched, smoothed so a parser with few attempts is neither
+         * first nor last by chance
+         */
+        public double getHitRate() {
+            return (getHits() + 1.0) / (getAttempts() + 2.0);
+        }
+    }
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    /**
+     * Records one run of a parser that passed its anchor prefilter
+     */
+    public void record(String parserName, boolean hit, long nanos) {
+        Counter counter = getCounter(parserName);
+        counter.attempts.incrementAndGet();
+        if (hit) {
+            counter.hits.incrementAndGet();
+        }
+        counter.nanos.addAndGet(nanos);
+    }
+
+    public Counter getCounter(String parserName) {
+        return counters.computeIfAbsent(parserName, name -> new Counter());
+    }
+
+    /**
+     * Orders parsers by descending hit rate, parsers with equal rates keep their order when sorted stably
+     */
+    public Comparator<SmsParser> byHitRate() {
+        return (a, b) -> Double.compare(getCounter(b.getName()).getHitRate(), getCounter(a.getName()).getHitRate());
+    }
+
+    /**
+     * @return One line per parser with its attempts, matches and average time, for the log
+     */
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long attempts = counter.getAttempts();
+            lines.add(String.format(Locale.ROOT, "%s: %d/%d matched, %d us avg", entry.getKey(),
+                    counter.getHits(), attempts, attempts > 0 ? counter.getNanos() / attempts / 1000 : 0));
+        }
+        return lines;
+    }
+
+    /**
+     * Adds the counts kept by earlier runs, only the first call per process reads them
+     */
+    public void load(Context context) {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            SharedPreferences preferences = getPreferences(context);
+            for (String key : preferences.getAll().keySet()) {
+                if (!key.endsWith(KEY_ATTEMPTS)) {
+                    continue;
+                }
+                String name = key.substring(0, key.length() - KEY_ATTEMPTS.length());
+                Counter counter = getCounter(name);
+                counter.attempts.addAndGet(preferences.getLong(name + KEY_ATTEMPTS, 0));
+                counter.hits.addAndGet(preferences.getLong(name + KEY_HITS, 0));
+                counter.nanos.addAndGet(preferences.getLong(name + KEY_NANOS, 0));
+            }
+            loaded = true;
+        }
+    }
+
+    /**
+     * Stores the current counts, replacing those of earlier runs that load added in
+     */
+    public void save(Context context) {
+        load(context);
+        SharedPreferences.Editor editor = getPreferences(context).edit();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            editor.putLong(entry.getKey() + KEY_ATTEMPTS, counter.getAttempts())
+                    .putLong(entry.getKey() + KEY_HITS, counter.getHits())
+                    .putLong(entry.getKey() + KEY_NANOS, counter.getNanos());
+        }
+        editor.apply();
+    }
+
+    /**
+     * @return true if the fallback parsers should run in order of hit rate instead of registration order
+     */
+    public static boolean isAdaptiveOrder(Context context) {
+        return getPreferences(context).getBoolean(KEY_ADAPTIVE_ORDER, false);
+    }
+
+    public static void setAdaptiveOrder(Context context, boolean adaptiveOrder) {
+        getPreferences(context).edit().putBoolean(KEY_ADAPTIVE_ORDER, adaptiveOrder).apply();
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
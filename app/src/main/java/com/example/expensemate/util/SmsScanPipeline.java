@@ -0,0 +1,246 @@
+package com.example.expensemate.util;
+
+import android.util.Log;
+
+import com.example.expensemate.data.Transaction;
+import com.example.expensemate.viewmodel.TransactionViewModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports the transactions of an inbox in three stages connected by bounded queues:
+ * the calling thread reads the inbox, a pool sized to the cores parses the messages, and a single
+ * writer inserts the transactions in batches. A full queue blocks the stage feeding it, so a slow
+ * writer holds back the parsers and the reader instead of buffering the whole inbox.
+ */
+public class SmsScanPipeline {
+    private static final String TAG = "SmsScanPipeline";
+    private static final int QUEUE_CAPACITY = 256;
+    // Transactions inserted in one database transaction
+    private static final int WRITE_BATCH_SIZE = 200;
+    // Messages kept per outcome for the log, the rest are only counted
+    private static final int MAX_SAMPLES = 20;
+    // How often a stage waiting for room in a queue checks that the writer is still running
+    private static final long WRITER_CHECK_MILLIS = 100;
+
+    // Marks the end of a queue, each consumer takes exactly one
+    private static final ReadSms END_OF_MESSAGES = new ReadSms(-1, null);
+    private static final ParsedSms END_OF_PARSED = new ParsedSms(null, null);
+
+    public interface ProgressListener {
+        /**
+         * Called on the writer thread after every batch
+         * @param readCount Messages read from the cursor so far
+         * @param createdCount Transactions inserted so far
+         */
+        void onProgress(int readCount, int createdCount);
+    }
+
+    /**
+     * Counts by outcome, with the first few unmatched and failed messages
+     */
+    public static class Result {
+        public int processedCount;
+        public int createdCount;
+        public int duplicateCount;
+        public int unmatchedCount;
+        public int errorCount;
+        public long maxSmsId = -1; // Highest Telephony.Sms._ID read, -1 if no message was read
+        public long minFailedSmsId = -1; // Lowest _ID of the messages counted in errorCount, -1 if none
+        public final List<String> unmatchedSamples = new ArrayList<>();
+        public final List<String> errorSamples = new ArrayList<>();
+
+        /**
+         * @return The _ID up to which every message read was processed, for SmsScanCheckpoint.advance.
+         * Below maxSmsId if a message failed, so the next scan reads it again, -1 if no message was read
+         */
+        public long getProcessedSmsId() {
+            return minFailedSmsId < 0 ? maxSmsId : Math.min(maxSmsId, minFailedSmsId - 1);
+        }
+    }
+
+    private static final class ReadSms {
+        final long smsId; // Telephony.Sms._ID
+        final SmsTransactionHandler.InboxSms sms;
+
+        ReadSms(long smsId, SmsTransactionHandler.InboxSms sms) {
+            this.smsId = smsId;
+            this.sms = sms;
+        }
+    }
+
+    private static final class ParsedSms {
+        final ReadSms sms;
+        final Transaction transaction; // null if no pattern matched
+
+        ParsedSms(ReadSms sms, Transaction transaction) {
+            this.sms = sms;
+            this.transaction = transaction;
+        }
+    }
+
+    private final TransactionViewModel viewModel;
+    private final ProgressListener progressListener;
+    private final int parserCount;
+    private final AtomicInteger readCount = new AtomicInteger();
+
+    public SmsScanPipeline(TransactionViewModel viewModel, ProgressListener progressListener) {
+        this.viewModel = viewModel;
+        this.progressListener = progressListener;
+        // One core is left to the reader, the writer and the UI
+        this.parserCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /**
+     * Runs the pipeline over the messages of the reader.
+     * Blocks until every message is written, must not be called on the main thread.
+     * @throws SecurityException without the READ_SMS permission
+     */
+    public Result run(SmsInboxReader reader) throws InterruptedException {
+        BlockingQueue<ReadSms> messages = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<ParsedSms> parsed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        ExecutorService parsers = Executors.newFixedThreadPool(parserCount);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        long start = System.currentTimeMillis();
+        try {
+            Future<Result> result = writer.submit(() -> write(parsed));
+            for (int i = 0; i < parserCount; i++) {
+                parsers.execute(() -> parse(messages, parsed, result));
+            }
+
+            long maxSmsId = -1;
+            try {
+                maxSmsId = reader.read((smsId, sms) -> {
+                    if (!put(messages, new ReadSms(smsId, sms), result)) {
+                        throw new CancellationException("SMS writer stopped");
+                    }
+                    readCount.incrementAndGet();
+                });
+            } catch (CancellationException e) {
+                // The writer failed, result.get() below throws its exception
+            } finally {
+                for (int i = 0; i < parserCount; i++) {
+                    if (!put(messages, END_OF_MESSAGES, result)) {
+                        break;
+                    }
+                }
+            }
+
+            Result scanResult = result.get();
+            scanResult.maxSmsId = maxSmsId;
+            Log.d(TAG, "Scanned " + scanResult.processedCount + " SMS with " + parserCount + " parsers in " +
+                    (System.currentTimeMillis() - start) + " ms");
+            return scanResult;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("SMS scan failed", e.getCause());
+        } finally {
+            parsers.shutdownNow();
+            writer.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for room in the queue only while the writer runs. A failed writer takes nothing from the
+     * queues anymore, so waiting on them would block the scan for good.
+     * @return false if the writer finished and the item was not queued
+     */
+    private static <T> boolean put(BlockingQueue<T> queue, T item, Future<?> writer) throws InterruptedException {
+        while (!queue.offer(item, WRITER_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void parse(BlockingQueue<ReadSms> messages, BlockingQueue<ParsedSms> parsed, Future<?> writer) {
+        try {
+            try {
+                ReadSms sms;
+                while ((sms = messages.take()) != END_OF_MESSAGES) {
+                    if (!put(parsed, new ParsedSms(sms, SmsTransactionHandler.parseSms(sms.sms)), writer)) {
+                        return;
+                    }
+                }
+            } finally {
+                put(parsed, END_OF_PARSED, writer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Result write(BlockingQueue<ParsedSms> parsed) throws InterruptedException {
+        Result result = new Result();
+        List<Transaction> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+        long[] batchSmsIds = new long[WRITE_BATCH_SIZE];
+        int finishedParsers = 0;
+        while (finishedParsers < parserCount) {
+            ParsedSms item = parsed.take();
+            if (item == END_OF_PARSED) {
+                finishedParsers++;
+                continue;
+            }
+            result.processedCount++;
+            if (item.transaction == null) {
+                result.unmatchedCount++;
+                addSample(result.unmatchedSamples, item.sms.sms.body);
+                continue;
+            }
+            batchSmsIds[batch.size()] = item.sms.smsId;
+            batch.add(item.transaction);
+            if (batch.size() == WRITE_BATCH_SIZE) {
+                writeBatch(batch, batchSmsIds, result);
+            }
+        }
+        writeBatch(batch, batchSmsIds, result);
+        return result;
+    }
+
+    private void writeBatch(List<Transaction> batch, long[] batchSmsIds, Result result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<SmsTransactionHandler.TransactionResult> results = SmsTransactionHandler.insertParsedBatch(batch, viewModel);
+        for (int i = 0; i < results.size(); i++) {
+            String body = batch.get(i).getSmsBody();
+            SmsTransactionHandler.TransactionResult transactionResult = results.get(i);
+            if (transactionResult.success) {
+                result.createdCount++;
+            } else {
+                switch (transactionResult.reason) {
+                    case "Duplicate transaction detected":
+                        result.duplicateCount++;
+                        break;
+                    default:
+                        result.errorCount++;
+                        if (result.minFailedSmsId < 0 || batchSmsIds[i] < result.minFailedSmsId) {
+                            result.minFailedSmsId = batchSmsIds[i];
+                        }
+                        addSample(result.errorSamples, body + " (Error: " + transactionResult.reason + ")");
+                        break;
+                }
+            }
+        }
+        batch.clear();
+        if (progressListener != null) {
+            progressListener.onProgress(readCount.get(), result.createdCount);
+        }
+    }
+
+    private static void addSample(List<String> samples, String body) {
+        if (samples.size() < MAX_SAMPLES) {
+            samples.add(body);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.expensemate.util;
+
+import java.util.TimeZone;
+
+/**
+ * Scanners for the amount and date tokens found in bank SMS.
+ * Both work directly on a range of the SMS text, so parsing a matched group does not
+ * allocate substrings or go through Double.parseDouble / SimpleDateFormat.
+ */
+public final class SmsTokenizer {
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final String[] MONTHS = {
+        "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"
+    };
+
+    private SmsTokenizer() {
+    }
+
+    /**
+     * Parses an Indian format amount such as "1,23,456.78", "Rs.500", "Rs 1,250.00" or "INR 99.5"
+     * @param text Text containing the amount
+     * @param start Start index of the amount token, inclusive
+     * @param end End index of the amount token, exclusive
+     * @return Amount in paise, or {@link #INVALID} if the range does not hold an amount
+     */
+    public static long parseAmountPaise(CharSequence text, int start, int end) {
+        int i = skipSpaces(text, start, end);
+        if (regionMatchesIgnoreCase(text, i, end, "inr")) {
+            i += 3;
+        } else if (regionMatchesIgnoreCase(text, i, end, "rs")) {
+            i += 2;
+            if (i < end && text.charAt(i) == '.') {
+                i++;
+            }
+        } else if (i < end && text.charAt(i) == '₹') {
+            i++;
+        }
+        i = skipSpaces(text, i, end);
+
+        long rupees = 0;
+        int digits = 0;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (rupees > Long.MAX_VALUE / 1000) {
+                    return INVALID;
+                }
+                rupees = rupees * 10 + (c - '0');
+                digits++;
+            } else if (c != ',' || digits == 0) {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return INVALID;
+        }
+
+        long paise = 0;
+        if (i < end && text.charAt(i) == '.') {
+            i++;
+            int fractionDigits = 0;
+            while (i < end && fractionDigits < 2 && isDigit(text.charAt(i))) {
+                paise = paise * 10 + (text.charAt(i) - '0');
+                fractionDigits++;
+                i++;
+            }
+            if (fractionDigits == 1) {
+                paise *= 10;
+            }
+        }
+        return rupees * 100 + paise;
+    }
+
+    /**
+     * Parses the date formats used in bank SMS: "12-Jan-24", "12/01/2024", "12-01-24",
+     * "5-01-2024 12:30:45", "05JAN2024 12:30:45" and "05 Jan 2024 12:30:45".
+     * Two digit years are taken as 20yy. Without a time the result is the start of the day.
+     * @param text Text containing the date
+     * @param start Start index of the date token, inclusive
+     * @param end End index of the date token, exclusive
+     * @param timeZone Time zone the date is expressed in
+     * @return Epoch millis, or {@link #INVALID} if the range does not hold a valid date
+     */
+    public static long parseDate(CharSequence text, int start, int end, TimeZone timeZone) {
+        int i = skipSpaces(text, start, end);
+
+        int dayStart = i;
+        int day = 0;
+        while (i < end && i - dayStart < 2 && isDigit(text.charAt(i))) {
+            day = day * 10 + (text.charAt(i++) - '0');
+        }
+        if (i == dayStart) {
+            return INVALID;
+        }
+        i = skipSeparator(text, i, end);
+
+        int month = 0;
+        if (i < end && isDigit(text.charAt(i))) {
+            int monthStart = i;
+            while (i < end && i - monthStart < 2 && isDigit(text.charAt(i))) {
+                month = month * 10 + (text.charAt(i++) - '0');
+            }
+        } else {
+            for (int m = 0; m < MONTHS.length; m++) {
+                if (regionMatchesIgnoreCase(text, i, end, MONTHS[m])) {
+                    month = m + 1;
+                    i += 3;
+                    break;
+                }
+            }
+        }
+        if (month < 1 || month > 12) {
+            return INVALID;
+        }
+        i = skipSeparator(text, i, end);
+
+        int yearStart = i;
+        int year = 0;
+        while (i < end && i - yearStart < 4 && isDigit(text.charAt(i))) {
+            year = year * 10 + (text.charAt(i++) - '0');
+        }
+        int yearDigits = i - yearStart;
+        if (yearDigits == 2) {
+            year += 2000;
+        } else if (yearDigits != 4) {
+            return INVALID;
+        }
+        if (day < 1 || day > daysInMonth(year, month)) {
+            return INVALID;
+        }
+
+        long timeOfDay = 0;
+        i = skipSpaces(text, i, end);
+        if (i + 5 <= end && isDigit(text.charAt(i)) && isDigit(text.charAt(i + 1)) && text.charAt(i + 2) == ':') {
+            int hours = twoDigits(text, i);
+            int minutes = twoDigits(text, i + 3);
+            int seconds = 0;
+            if (i + 8 <= end && text.charAt(i + 5) == ':') {
+                seconds = twoDigits(text, i + 6);
+            }
+            if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+                return INVALID;
+            }
+            timeOfDay = ((hours * 60L + minutes) * 60 + seconds) * 1000;
+        }
+
+        long localMillis = daysFromCivil(year, month, day) * MILLIS_PER_DAY + timeOfDay;
+        return localMillis - timeZone.getOffset(localMillis - timeZone.getRawOffset());
+    }
+
+    /**
+     * @return true if both instants fall on the same calendar day in the given time zone
+     */
+    public static boolean isSameDay(long firstMillis, long secondMillis, TimeZone timeZone) {
+        return Math.floorDiv(firstMillis + timeZone.getOffset(firstMillis), MILLIS_PER_DAY)
+                == Math.floorDiv(secondMillis + timeZone.getOffset(secondMillis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * @return true if the instant is exactly the start of a day in the given time zone
+     */
+    public static boolean isStartOfDay(long millis, TimeZone timeZone) {
+        return Math.floorMod(millis + timeZone.getOffset(millis), MILLIS_PER_DAY) == 0;
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int twoDigits(CharSequence text, int index) {
+        char tens = text.charAt(index);
+        char units = text.charAt(index + 1);
+        if (!isDigit(tens) || !isDigit(units)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (units - '0');
+    }
+
+    private static int skipSpaces(CharSequence text, int i, int end) {
+        while (i < end && text.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipSeparator(CharSequence text, int i, int end) {
+        if (i < end) {
+            char c = text.charAt(i);
+            if (c == '-' || c == '/' || c == ' ') {
+                return i + 1;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean regionMatchesIgnoreCase(CharSequence text, int i, int end, String lowerToken) {
+        if (end - i < lowerToken.length()) {
+            return false;
+        }
+        for (int k = 0; k < lowerToken.length(); k++) {
+            char c = text.charAt(i + k);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            if (c != lowerToken.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
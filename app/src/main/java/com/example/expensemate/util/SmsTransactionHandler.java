@@ -1,9 +1,18 @@
 package com.example.expensemate.util;
 
+import android.content.Context;
 import android.util.Log;
 import com.example.expensemate.data.Transaction;
+import com.example.expensemate.utils.MoneyUtils;
 import com.example.expensemate.viewmodel.TransactionViewModel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class SmsTransactionHandler {
@@ -37,6 +46,21 @@ public class SmsTransactionHandler {
         }
     }
 
+    /**
+     * A message read from the inbox, the input of handleSmsBatch
+     */
+    public static class InboxSms {
+        public final String body;
+        public final String sender;
+        public final Date date;
+
+        public InboxSms(String body, String sender, Date date) {
+            this.body = body;
+            this.sender = sender;
+            this.date = date;
+        }
+    }
+
     // Pattern for ICICI Bank debit format
     private static final Pattern ICICI_DEBIT_PATTERN = Pattern.compile(
         "(?i)ICICI Bank (?:Acct|Acc) XX(\\d+) (?:debited for |debited )Rs\\.? (\\d+(?:,\\d+)*(?:\\.\\d{2})?) on (\\d{2}-[A-Za-z]{3}-\\d{2}|\\d{2}/\\d{2}/\\d{4})[^;]*?;\\s*([^*]+)(?:credited|Info)"
@@ -124,362 +148,200 @@ public class SmsTransactionHandler {
             "ICICI Bank Acc XX\\d+ debited Rs\\.?\\s*(\\d{1,3}(?:,\\d{3})*(?:\\.\\d{2})) on (\\d{2}-[A-Za-z]{3}-\\d{2}) InfoBIL\\*NEFT\\*([A-Z0-9\\.]+)"
     );
 
+    // Literal tokens that the patterns above cannot match without. Every SMS is scanned for all of them
+    // in one pass and a parser is only evaluated when its anchors are present, so a non-bank SMS
+    // skips the regex patterns entirely.
+    private static final String[] ANCHOR_TOKENS = {
+        "rs", "inr", "debited", "credited", "spent", "card", "acct", "neft",
+        "icici bank", "kotak bank ac", "sent rs", "received rs", "sbi credit card",
+        "paid", "sent", "transferred", "withdrawn", "received", "deposited",
+        "federal bank", "debited via upi", "pluxee", "spent from", "credited with", "credited:rs",
+        "spent on icici bank card", "debited from icici bank acc", "credited to your a/c no", "infobil*neft*"
+    };
+
+    private static final KeywordAutomaton ANCHOR_AUTOMATON = new KeywordAutomaton(ANCHOR_TOKENS);
+
+    // Each entry is a group of alternatives; at least one token of every group must be present
+    private static final long[] ICICI_DEBIT_ANCHORS = {anyOf("icici bank"), anyOf("debited"), anyOf("rs")};
+    private static final long[] ICICI_CREDIT_ANCHORS = {anyOf("credited")};
+    private static final long[] KOTAK_DEBIT_ANCHORS = {anyOf("kotak bank ac"), anyOf("sent rs")};
+    private static final long[] KOTAK_CREDIT_ANCHORS = {anyOf("kotak bank ac"), anyOf("received rs")};
+    private static final long[] SBI_DEBIT_ANCHORS = {anyOf("sbi credit card"), anyOf("spent")};
+    private static final long[] GENERAL_DEBIT_ANCHORS = {
+        anyOf("rs", "inr"), anyOf("debited", "spent", "paid", "sent", "transferred", "withdrawn")
+    };
+    private static final long[] GENERAL_CREDIT_ANCHORS = {anyOf("received", "credited", "deposited"), anyOf("rs", "inr")};
+    private static final long[] FEDERAL_DEBIT_ANCHORS = {anyOf("federal bank"), anyOf("debited via upi")};
+    private static final long[] FEDERAL_CREDIT_ANCHORS = {anyOf("federal bank"), anyOf("credited")};
+    private static final long[] PLUXEE_DEBIT_ANCHORS = {anyOf("pluxee"), anyOf("spent from")};
+    private static final long[] PLUXEE_CREDIT_ANCHORS = {anyOf("pluxee"), anyOf("credited with")};
+    private static final long[] UPI_DEBIT_ANCHORS = {anyOf("debited"), anyOf("credited")};
+    private static final long[] UPI_CREDIT_ANCHORS = {anyOf("acct"), anyOf("credited")};
+    private static final long[] NEFT_CREDIT_ANCHORS = {anyOf("credited:rs"), anyOf("neft")};
+    private static final long[] CREDIT_CARD_SPEND_ANCHORS = {anyOf("rs"), anyOf("spent"), anyOf("card")};
+    private static final long[] ICICI_CARD_SPEND_ANCHORS = {anyOf("spent on icici bank card")};
+    private static final long[] ICICI_ALT_DEBIT_ANCHORS = {anyOf("debited from icici bank acc")};
+    private static final long[] NEFT_CREDIT_BY_ANCHORS = {anyOf("credited to your a/c no")};
+    private static final long[] ICICI_INFOBIL_NEFT_DEBIT_ANCHORS = {anyOf("infobil*neft*")};
+
+    private static long anyOf(String... tokens) {
+        long mask = 0L;
+        for (String token : tokens) {
+            int index = Arrays.asList(ANCHOR_TOKENS).indexOf(token);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown anchor token: " + token);
+            }
+            mask |= 1L << index;
+        }
+        return mask;
+    }
+
+    private static final String[] ICICI_SENDERS = {"ICICIB", "ICICIT", "ICICIO"};
+    private static final String[] KOTAK_SENDERS = {"KOTAKB", "KOTAK"};
+    private static final String[] SBI_CARD_SENDERS = {"SBICRD", "SBIINB"};
+    private static final String[] FEDERAL_SENDERS = {"FEDBNK", "FEDFIB"};
+    private static final String[] PLUXEE_SENDERS = {"PLUXEE", "SODEXO"};
+
+    // Passed as the date group for patterns that do not capture a date
+    private static final int NO_DATE = -1;
+
+    private static final SmsParserRegistry PARSER_REGISTRY = createParserRegistry();
+    private static final SmsParserStats PARSER_STATS = new SmsParserStats();
+
+    private static SmsParserRegistry createParserRegistry() {
+        SmsParserRegistry registry = new SmsParserRegistry();
+
+        // ICICI patterns
+        registry.register(new RegexSmsParser("ICICI debit", ICICI_DEBIT_PATTERN, ICICI_DEBIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 2, 3, m.group(4), "DEBIT", body, sender, received)), ICICI_SENDERS);
+        registry.register(new RegexSmsParser("ICICI credit", ICICI_CREDIT_PATTERN, ICICI_CREDIT_ANCHORS,
+                (m, body, sender, received) -> {
+                    if (m.group(1) != null) {
+                        // First pattern matched (UPI credit)
+                        return newTransaction(m, 2, 3, m.group(4), "CREDIT", body, sender, received);
+                    }
+                    // Second pattern matched (NEFT credit)
+                    return newTransaction(m, 6, 7, "NEFT-" + m.group(8).trim(), "CREDIT", body, sender, received);
+                }), ICICI_SENDERS);
+        registry.register(new RegexSmsParser("ICICI Credit Card spend", ICICI_CARD_SPEND_PATTERN, ICICI_CARD_SPEND_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, 2, m.group(3), "DEBIT", body, sender, received)), ICICI_SENDERS);
+        registry.register(new RegexSmsParser("ICICI alt debit", ICICI_ALT_DEBIT_PATTERN, ICICI_ALT_DEBIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, 2, m.group(3), "DEBIT", body, sender, received)), ICICI_SENDERS);
+        registry.register(new RegexSmsParser("ICICI NEFT debit", ICICI_INFOBIL_NEFT_DEBIT_PATTERN, ICICI_INFOBIL_NEFT_DEBIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, 2, "NEFT-" + m.group(3).trim(), "DEBIT", body, sender, received)), ICICI_SENDERS);
+
+        // Kotak patterns
+        registry.register(new RegexSmsParser("Kotak debit", KOTAK_DEBIT_PATTERN, KOTAK_DEBIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, 4, m.group(3), "DEBIT", body, sender, received)), KOTAK_SENDERS);
+        registry.register(new RegexSmsParser("Kotak credit", KOTAK_CREDIT_PATTERN, KOTAK_CREDIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, 4, m.group(3), "CREDIT", body, sender, received)), KOTAK_SENDERS);
+
+        // SBI Credit Card pattern
+        registry.register(new RegexSmsParser("SBI Credit Card debit", SBI_DEBIT_PATTERN, SBI_DEBIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, 4, m.group(3), "DEBIT", body, sender, received)), SBI_CARD_SENDERS);
+
+        // Federal Bank patterns
+        registry.register(new RegexSmsParser("Federal Bank debit", FEDERAL_DEBIT_PATTERN, FEDERAL_DEBIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, 2, m.group(3), "DEBIT", body, sender, received)), FEDERAL_SENDERS);
+        registry.register(new RegexSmsParser("Federal Bank credit", FEDERAL_CREDIT_PATTERN, FEDERAL_CREDIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, 3, "Federal Bank", "CREDIT", body, sender, received)), FEDERAL_SENDERS);
+
+        // Pluxee patterns
+        registry.register(new RegexSmsParser("Pluxee debit", PLUXEE_DEBIT_PATTERN, PLUXEE_DEBIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, 2, m.group(3), "DEBIT", body, sender, received)), PLUXEE_SENDERS);
+        registry.register(new RegexSmsParser("Pluxee credit", PLUXEE_CREDIT_PATTERN, PLUXEE_CREDIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, 2, "Pluxee", "CREDIT", body, sender, received)), PLUXEE_SENDERS);
+
+        // Generic patterns, tried for every sender after the sender specific ones
+        registry.registerFallback(new RegexSmsParser("General debit", GENERAL_DEBIT_PATTERN, GENERAL_DEBIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, NO_DATE, m.group(2), "DEBIT", body, sender, received)));
+        registry.registerFallback(new RegexSmsParser("General credit", GENERAL_CREDIT_PATTERN, GENERAL_CREDIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, 3, m.group(2), "CREDIT", body, sender, received)));
+        registry.registerFallback(new RegexSmsParser("UPI debit", UPI_DEBIT_PATTERN, UPI_DEBIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, NO_DATE, m.group(2), "DEBIT", body, sender, received)));
+        registry.registerFallback(new RegexSmsParser("UPI credit", UPI_CREDIT_PATTERN, UPI_CREDIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, NO_DATE, m.group(2), "CREDIT", body, sender, received)));
+        registry.registerFallback(new RegexSmsParser("NEFT credit", NEFT_CREDIT_PATTERN, NEFT_CREDIT_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, NO_DATE, "NEFT-" + m.group(2).trim(), "CREDIT", body, sender, received)));
+        registry.registerFallback(new RegexSmsParser("Credit Card spend", CREDIT_CARD_SPEND_PATTERN, CREDIT_CARD_SPEND_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, NO_DATE, m.group(2), "DEBIT", body, sender, received)));
+        registry.registerFallback(new RegexSmsParser("NEFT credit by sender", NEFT_CREDIT_BY_PATTERN, NEFT_CREDIT_BY_ANCHORS,
+                (m, body, sender, received) -> newTransaction(m, 1, NO_DATE, m.group(2), "CREDIT", body, sender, received)));
+
+        return registry;
+    }
+
+    /**
+     * Builds a transaction from a match, reading the amount and date straight from the SMS text
+     * @param m The successful match
+     * @param amountGroup Group holding the amount
+     * @param dateGroup Group holding the date quoted in the SMS, NO_DATE if the pattern has none
+     * @param counterparty Receiver or sender name
+     * @param transactionType "DEBIT" or "CREDIT"
+     * @param smsBody The SMS message body
+     * @param sender The SMS sender
+     * @param receivedDate When the SMS was received, null for now
+     * @return Transaction object, null if the amount could not be parsed
+     */
+    private static Transaction newTransaction(Matcher m, int amountGroup, int dateGroup, String counterparty,
+                                              String transactionType, String smsBody, String sender, Date receivedDate) {
+        long amountPaise = SmsTokenizer.parseAmountPaise(smsBody, m.start(amountGroup), m.end(amountGroup));
+        if (amountPaise == SmsTokenizer.INVALID) {
+            Log.d(TAG, "Could not parse amount: " + m.group(amountGroup));
+            return null;
+        }
+        return new Transaction(
+            amountPaise,
+            smsBody,
+            resolveDate(m, dateGroup, smsBody, receivedDate),
+            transactionType,
+            counterparty.trim(),
+            smsBody,
+            sender
+        );
+    }
+
+    /**
+     * The date quoted in the SMS is the transaction date, which differs from the received date when
+     * the SMS was delayed or is being read back from the inbox. Date only formats keep the received
+     * time when both fall on the same day.
+     */
+    private static Date resolveDate(Matcher m, int dateGroup, String smsBody, Date receivedDate) {
+        Date received = receivedDate != null ? receivedDate : new Date();
+        if (dateGroup == NO_DATE || m.start(dateGroup) < 0) {
+            return received;
+        }
+        TimeZone timeZone = TimeZone.getDefault();
+        long smsDate = SmsTokenizer.parseDate(smsBody, m.start(dateGroup), m.end(dateGroup), timeZone);
+        if (smsDate == SmsTokenizer.INVALID) {
+            return received;
+        }
+        if (SmsTokenizer.isStartOfDay(smsDate, timeZone)
+                && SmsTokenizer.isSameDay(smsDate, received.getTime(), timeZone)) {
+            return received;
+        }
+        return new Date(smsDate);
+    }
 
     /**
      * Extracts transaction details from SMS
      * @param smsBody The SMS message body
      * @param sender The SMS sender
+     * @param receivedDate When the SMS was received, null for now
      * @return Transaction object if extraction was successful, null otherwise
      */
-    private static Transaction extractTransactionDetails(String smsBody, String sender) {
+    private static Transaction extractTransactionDetails(String smsBody, String sender, Date receivedDate) {
         try {
             Log.d(TAG, "Extracting transaction details from SMS");
+            long anchors = ANCHOR_AUTOMATON.scan(smsBody);
 
-            // Try ICICI patterns
-            var iciciDebitMatcher = ICICI_DEBIT_PATTERN.matcher(smsBody);
-            if (iciciDebitMatcher.find()) {
-                // Remove commas from amount before parsing
-                String amountStr = iciciDebitMatcher.group(2).replace(",", "");
-                double amount = Double.parseDouble(amountStr);
-                String receiverName = iciciDebitMatcher.group(4).trim();
-                Log.d(TAG, "Found ICICI debit transaction: " + amount + " to " + receiverName);
-
-                return new Transaction(
-                    amount,
-                    smsBody,
-                    new Date(),
-                    "DEBIT",
-                    receiverName,
-                    smsBody,
-                    sender
-                );
-            }
-
-            var iciciCreditMatcher = ICICI_CREDIT_PATTERN.matcher(smsBody);
-            if (iciciCreditMatcher.find()) {
-                // Handle both credit patterns
-                String amountStr;
-                String senderName;
-                if (iciciCreditMatcher.group(1) != null) {
-                    // First pattern matched (UPI credit)
-                    amountStr = iciciCreditMatcher.group(2).replace(",", "");
-                    senderName = iciciCreditMatcher.group(4).trim();
-                } else {
-                    // Second pattern matched (NEFT credit)
-                    amountStr = iciciCreditMatcher.group(6).replace(",", "");
-                    senderName = "NEFT-" + iciciCreditMatcher.group(8).trim();
-                }
-                double amount = Double.parseDouble(amountStr);
-                Log.d(TAG, "Found ICICI credit transaction: " + amount + " from " + senderName);
-
-                return new Transaction(
-                    amount,
-                    smsBody,
-                    new Date(),
-                    "CREDIT",
-                    senderName,
-                    smsBody,
-                    sender
-                );
-            }
-
-            // Try Kotak patterns
-            var kotakDebitMatcher = KOTAK_DEBIT_PATTERN.matcher(smsBody);
-            if (kotakDebitMatcher.find()) {
-                double amount = Double.parseDouble(kotakDebitMatcher.group(1));
-                String receiverName = kotakDebitMatcher.group(3).trim();
-                Log.d(TAG, "Found Kotak debit transaction: " + amount + " to " + receiverName);
-
-                return new Transaction(
-                    amount,
-                    smsBody,
-                    new Date(),
-                    "DEBIT",
-                    receiverName,
-                    smsBody,
-                    sender
-                );
-            }
-
-            var kotakCreditMatcher = KOTAK_CREDIT_PATTERN.matcher(smsBody);
-            if (kotakCreditMatcher.find()) {
-                double amount = Double.parseDouble(kotakCreditMatcher.group(1));
-                String senderName = kotakCreditMatcher.group(3).trim();
-                Log.d(TAG, "Found Kotak credit transaction: " + amount + " from " + senderName);
-
-                return new Transaction(
-                    amount,
-                    smsBody,
-                    new Date(),
-                    "CREDIT",
-                    senderName,
-                    smsBody,
-                    sender
-                );
-            }
-
-            // Try SBI Credit Card pattern
-            var sbiDebitMatcher = SBI_DEBIT_PATTERN.matcher(smsBody);
-            if (sbiDebitMatcher.find()) {
-                String amountStr = sbiDebitMatcher.group(1).replace(",", "");
-                double amount = Double.parseDouble(amountStr);
-                String merchantName = sbiDebitMatcher.group(3).trim();
-                Log.d(TAG, "Found SBI Credit Card debit transaction: " + amount + " at " + merchantName);
-
-                return new Transaction(
-                    amount,
-                    smsBody,
-                    new Date(),
-                    "DEBIT",
-                    merchantName,
-                    smsBody,
-                    sender
-                );
-            }
-
-            // Try general patterns as fallback
-            var generalDebitMatcher = GENERAL_DEBIT_PATTERN.matcher(smsBody);
-            if (generalDebitMatcher.find()) {
-                double amount = Double.parseDouble(generalDebitMatcher.group(1));
-                String receiverName = generalDebitMatcher.group(2).trim();
-                Log.d(TAG, "Found general debit transaction: " + amount + " to " + receiverName);
-
-                return new Transaction(
-                    amount,
-                    smsBody,
-                    new Date(),
-                    "DEBIT",
-                    receiverName,
-                    smsBody,
-                    sender
-                );
-            }
-
-            var generalCreditMatcher = GENERAL_CREDIT_PATTERN.matcher(smsBody);
-            if (generalCreditMatcher.find()) {
-                double amount = Double.parseDouble(generalCreditMatcher.group(1));
-                String senderName = generalCreditMatcher.group(2).trim();
-                Log.d(TAG, "Found general credit transaction: " + amount + " from " + senderName);
-
-                return new Transaction(
-                    amount,
-                    smsBody,
-                    new Date(),
-                    "CREDIT",
-                    senderName,
-                    smsBody,
-                    sender
-                );
-            }
-
-            // Try Federal Bank patterns
-            var federalDebitMatcher = FEDERAL_DEBIT_PATTERN.matcher(smsBody);
-            if (federalDebitMatcher.find()) {
-                double amount = Double.parseDouble(federalDebitMatcher.group(1));
-                String receiverName = federalDebitMatcher.group(3).trim();
-                Log.d(TAG, "Found Federal Bank debit transaction: " + amount + " to " + receiverName);
-
-                return new Transaction(
-                    amount,
-                    smsBody,
-                    new Date(),
-                    "DEBIT",
-                    receiverName,
-                    smsBody,
-                    sender
-                );
-            }
-
-            var federalCreditMatcher = FEDERAL_CREDIT_PATTERN.matcher(smsBody);
-            if (federalCreditMatcher.find()) {
-                double amount = Double.parseDouble(federalCreditMatcher.group(1));
-                String senderName = "Federal Bank";
-                Log.d(TAG, "Found Federal Bank credit transaction: " + amount + " from " + senderName);
-
-                return new Transaction(
-                    amount,
-                    smsBody,
-                    new Date(),
-                    "CREDIT",
-                    senderName,
-                    smsBody,
-                    sender
-                );
-            }
-
-            // Try Pluxee patterns
-            var pluxeeDebitMatcher = PLUXEE_DEBIT_PATTERN.matcher(smsBody);
-            if (pluxeeDebitMatcher.find()) {
-                double amount = Double.parseDouble(pluxeeDebitMatcher.group(1));
-                String merchantName = pluxeeDebitMatcher.group(3).trim();
-                Log.d(TAG, "Found Pluxee debit transaction: " + amount + " at " + merchantName);
-
-                return new Transaction(
-                    amount,
-                    smsBody,
-                    new Date(),
-                    "DEBIT",
-                    merchantName,
-                    smsBody,
-                    sender
-                );
-            }
-
-            var pluxeeCreditMatcher = PLUXEE_CREDIT_PATTERN.matcher(smsBody);
-            if (pluxeeCreditMatcher.find()) {
-                double amount = Double.parseDouble(pluxeeCreditMatcher.group(1));
-                String senderName = "Pluxee";
-                Log.d(TAG, "Found Pluxee credit transaction: " + amount + " from " + senderName);
-
-                return new Transaction(
-                    amount,
-                    smsBody,
-                    new Date(),
-                    "CREDIT",
-                    senderName,
-                    smsBody,
-                    sender
-                );
-            }
-
-            // Try UPI debit (e.g., ICICI generic debit format)
-            var upiDebitMatcher = UPI_DEBIT_PATTERN.matcher(smsBody);
-            if (upiDebitMatcher.find()) {
-                double amount = Double.parseDouble(upiDebitMatcher.group(1).replace(",", ""));
-                String receiverName = upiDebitMatcher.group(2).trim();
-                Log.d(TAG, "Found UPI debit transaction: " + amount + " to " + receiverName);
-
-                return new Transaction(
-                        amount,
-                        smsBody,
-                        new Date(),
-                        "DEBIT",
-                        receiverName,
-                        smsBody,
-                        sender
-                );
-            }
-
-// Try UPI credit
-            var upiCreditMatcher = UPI_CREDIT_PATTERN.matcher(smsBody);
-            if (upiCreditMatcher.find()) {
-                double amount = Double.parseDouble(upiCreditMatcher.group(1).replace(",", ""));
-                String senderName = upiCreditMatcher.group(2).trim();
-                Log.d(TAG, "Found UPI credit transaction: " + amount + " from " + senderName);
-
-                return new Transaction(
-                        amount,
-                        smsBody,
-                        new Date(),
-                        "CREDIT",
-                        senderName,
-                        smsBody,
-                        sender
-                );
-            }
-
-// Try NEFT credit
-            var neftCreditMatcher = NEFT_CREDIT_PATTERN.matcher(smsBody);
-            if (neftCreditMatcher.find()) {
-                double amount = Double.parseDouble(neftCreditMatcher.group(1).replace(",", ""));
-                String senderName = "NEFT-" + neftCreditMatcher.group(2).trim();
-                Log.d(TAG, "Found NEFT credit transaction: " + amount + " from " + senderName);
-
-                return new Transaction(
-                        amount,
-                        smsBody,
-                        new Date(),
-                        "CREDIT",
-                        senderName,
-                        smsBody,
-                        sender
-                );
-            }
-
-            var iciciCardSpendMatcher = ICICI_CARD_SPEND_PATTERN.matcher(smsBody);
-            if (iciciCardSpendMatcher.find()) {
-                double amount = Double.parseDouble(iciciCardSpendMatcher.group(1).replace(",", ""));
-                String merchant = iciciCardSpendMatcher.group(3).trim();
-                Log.d(TAG, "Found ICICI Credit Card spend: " + amount + " at " + merchant);
-
-                return new Transaction(
-                        amount,
-                        smsBody,
-                        new Date(),
-                        "DEBIT",
-                        merchant,
-                        smsBody,
-                        sender
-                );
-            }
-
-            var ccSpendMatcher = CREDIT_CARD_SPEND_PATTERN.matcher(smsBody);
-            if (ccSpendMatcher.find()) {
-                double amount = Double.parseDouble(ccSpendMatcher.group(1).replace(",", ""));
-                String merchant = ccSpendMatcher.group(2).trim();
-                Log.d(TAG, "Found Credit Card spend: " + amount + " at " + merchant);
-
-                return new Transaction(
-                        amount,
-                        smsBody,
-                        new Date(),
-                        "DEBIT",
-                        merchant,
-                        smsBody,
-                        sender
-                );
-            }
-
-            var iciciAltDebitMatcher = ICICI_ALT_DEBIT_PATTERN.matcher(smsBody);
-            if (iciciAltDebitMatcher.find()) {
-                double amount = Double.parseDouble(iciciAltDebitMatcher.group(1).replace(",", ""));
-                String receiver = iciciAltDebitMatcher.group(3).trim();
-                Log.d(TAG, "Found ICICI alt debit: " + amount + " to " + receiver);
-
-                return new Transaction(
-                        amount,
-                        smsBody,
-                        new Date(),
-                        "DEBIT",
-                        receiver,
-                        smsBody,
-                        sender
-                );
-            }
-
-            var neftCreditByMatcher = NEFT_CREDIT_BY_PATTERN.matcher(smsBody);
-            if (neftCreditByMatcher.find()) {
-                double amount = Double.parseDouble(neftCreditByMatcher.group(1).replace(",", ""));
-                String senderName = neftCreditByMatcher.group(2).trim();
-                Log.d(TAG, "Found NEFT credit by sender: " + amount + " from " + senderName);
-
-                return new Transaction(
-                        amount,
-                        smsBody,
-                        new Date(),
-                        "CREDIT",
-                        senderName,
-                        smsBody,
-                        sender
-                );
+            Transaction transaction = parseWith(PARSER_REGISTRY.getSenderParsers(sender),
+                    smsBody, sender, receivedDate, anchors);
+            if (transaction == null) {
+                transaction = parseWith(PARSER_REGISTRY.getFallbackParsers(), smsBody, sender, receivedDate, anchors);
             }
-
-            var iciciNeftDebitMatcher = ICICI_INFOBIL_NEFT_DEBIT_PATTERN.matcher(smsBody);
-            if (iciciNeftDebitMatcher.find()) {
-                double amount = Double.parseDouble(iciciNeftDebitMatcher.group(1).replace(",", ""));
-                String ref = iciciNeftDebitMatcher.group(3).trim();
-                String receiver = "NEFT-" + ref;
-                Log.d(TAG, "Found ICICI NEFT debit: " + amount + " to " + receiver);
-
-                return new Transaction(
-                        amount,
-                        smsBody,
-                        new Date(),
-                        "DEBIT",
-                        receiver,
-                        smsBody,
-                        sender
-                );
+            if (transaction != null) {
+                return transaction;
             }
 
             Log.d(TAG, "No transaction pattern matched in SMS:"+ smsBody);
@@ -489,12 +351,30 @@ public class SmsTransactionHandler {
         return null;
     }
 
+    private static Transaction parseWith(List<SmsParser> parsers, String smsBody, String sender,
+                                         Date receivedDate, long anchors) {
+        for (SmsParser parser : parsers) {
+            if (!parser.mayMatch(anchors)) {
+                continue;
+            }
+            long start = System.nanoTime();
+            Transaction transaction = parser.parse(smsBody, sender, receivedDate);
+            PARSER_STATS.record(parser.getName(), transaction != null, System.nanoTime() - start);
+            if (transaction != null) {
+                Log.d(TAG, "Found " + parser.getName() + " transaction: " + MoneyUtils.format(transaction.getAmountPaise()) +
+                        " to/from " + transaction.getReceiverName());
+                return transaction;
+            }
+        }
+        return null;
+    }
+
     /**
      * Extracts transaction details from SMS and processes it if valid
      * @param smsBody The SMS message body
      * @param sender The SMS sender
      * @param viewModel The TransactionViewModel to use for database operations
-     * @param date Optional date to set for the transaction (null for current date)
+     * @param date Optional date the SMS was received (null for current date), used unless the SMS quotes another day
      * @return TransactionResult containing the result of processing
      */
     public static TransactionResult handleSms(String smsBody, String sender, TransactionViewModel viewModel, Date date) {
@@ -503,12 +383,9 @@ public class SmsTransactionHandler {
         Log.d(TAG, "Full SMS body: [" + smsBody + "]");
 
         try {
-            Transaction transaction = extractTransactionDetails(smsBody, sender);
+            Transaction transaction = extractTransactionDetails(smsBody, sender, date);
             if (transaction != null) {
-                if (date != null) {
-                    transaction.setDate(date);
-                }
-                Log.d(TAG, "Transaction extracted: " + transaction.getAmount() + " " +
+                Log.d(TAG, "Transaction extracted: " + MoneyUtils.format(transaction.getAmountPaise()) + " " +
                         transaction.getTransactionType() + " to/from " + transaction.getReceiverName());
                 Log.d(TAG, "Transaction SMS body length: " + (transaction.getSmsBody() != null ? transaction.getSmsBody().length() : 0));
                 Log.d(TAG, "Transaction SMS body: [" + transaction.getSmsBody() + "]");
@@ -528,6 +405,139 @@ public class SmsTransactionHandler {
         }
     }
 
+    /**
+     * @return SmsParserRegistry.getSignature of the parsers in use, see SmsScanCheckpoint
+     */
+    public static int getParserSignature() {
+        return PARSER_REGISTRY.getSignature();
+    }
+
+    public static SmsParserStats getParserStats() {
+        return PARSER_STATS;
+    }
+
+    /**
+     * Adds the parser counts of earlier runs and applies the adaptive order setting to the fallback
+     * parsers. Reads shared preferences, call it off the main thread before parsing.
+     */
+    public static void loadParserStats(Context context) {
+        PARSER_STATS.load(context);
+        applyParserOrder(context);
+    }
+
+    /**
+     * Stores the parser counts and, in adaptive order, reorders the fallback parsers by what they
+     * have matched so far
+     */
+    public static void saveParserStats(Context context) {
+        PARSER_STATS.save(context);
+        applyParserOrder(context);
+    }
+
+    private static void applyParserOrder(Context context) {
+        boolean adaptive = SmsParserStats.isAdaptiveOrder(context);
+        PARSER_REGISTRY.orderFallbackParsers(adaptive ? PARSER_STATS.byHitRate() : null);
+        if (adaptive) {
+            StringBuilder order = new StringBuilder();
+            for (SmsParser parser : PARSER_REGISTRY.getFallbackParsers()) {
+                order.append(order.length() > 0 ? ", " : "").append(parser.getName());
+            }
+            Log.d(TAG, "Fallback parser order: " + order);
+        }
+    }
+
+    /**
+     * Sender headers whose messages can hold a transaction: those with sender specific parsers and
+     * those that existing transactions were read from. Must not be called on the main thread.
+     */
+    public static Set<String> getTransactionalSenderHeaders(TransactionViewModel viewModel) {
+        Set<String> headers = new HashSet<>(PARSER_REGISTRY.getSenderHeaders());
+        for (String sender : viewModel.getSmsSendersSync()) {
+            String header = SmsParserRegistry.normalizeSender(sender);
+            if (header != null) {
+                headers.add(header);
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Extracts the transaction of an inbox message without touching the database, safe to call from any thread
+     * @return The transaction, null if no pattern matched
+     */
+    public static Transaction parseSms(InboxSms sms) {
+        return extractTransactionDetails(sms.body, sms.sender, sms.date);
+    }
+
+    /**
+     * Extracts the transactions of a chunk of messages and inserts them in one database transaction.
+     * Runs the inserts on the calling thread, which must not be the main thread.
+     * @param messages The messages to process
+     * @param viewModel The TransactionViewModel to use for database operations
+     * @return The result for each message, in the order of messages
+     */
+    public static List<TransactionResult> handleSmsBatch(List<InboxSms> messages, TransactionViewModel viewModel) {
+        TransactionResult[] results = new TransactionResult[messages.size()];
+        List<Transaction> parsed = new ArrayList<>(messages.size());
+        List<Integer> parsedIndexes = new ArrayList<>(messages.size());
+
+        for (int i = 0; i < messages.size(); i++) {
+            Transaction transaction = parseSms(messages.get(i));
+            if (transaction == null) {
+                results[i] = TransactionResult.noPatternMatch(messages.get(i).body);
+            } else {
+                parsed.add(transaction);
+                parsedIndexes.add(i);
+            }
+        }
+
+        List<TransactionResult> insertResults = insertParsedBatch(parsed, viewModel);
+        for (int j = 0; j < insertResults.size(); j++) {
+            results[parsedIndexes.get(j)] = insertResults.get(j);
+        }
+        Log.d(TAG, "Processed batch of " + messages.size() + " SMS, " + parsed.size() + " with a transaction");
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Inserts transactions extracted by parseSms in one database transaction, skipping duplicates.
+     * Runs the inserts on the calling thread, which must not be the main thread.
+     * @return The result for each transaction, in the order of transactions
+     */
+    public static List<TransactionResult> insertParsedBatch(List<Transaction> transactions, TransactionViewModel viewModel) {
+        TransactionResult[] results = new TransactionResult[transactions.size()];
+        List<Transaction> pending = new ArrayList<>(transactions.size());
+        List<Integer> pendingIndexes = new ArrayList<>(transactions.size());
+
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            if (transaction.getSmsHash() != null && !viewModel.addSmsHashIfAbsent(transaction.getSmsHash())) {
+                results[i] = TransactionResult.duplicateTransaction();
+            } else {
+                pending.add(transaction);
+                pendingIndexes.add(i);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            try {
+                long[] ids = viewModel.insertTransactionBatch(pending);
+                for (int j = 0; j < ids.length; j++) {
+                    // -1 is a duplicate the cache could not tell, such as the same SMS twice in one chunk
+                    results[pendingIndexes.get(j)] = ids[j] == -1
+                            ? TransactionResult.duplicateTransaction()
+                            : TransactionResult.success(pending.get(j));
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error inserting SMS batch: " + e.getMessage(), e);
+                for (int index : pendingIndexes) {
+                    results[index] = TransactionResult.error("Error inserting transaction: " + e.getMessage());
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
     /**
      * Processes a transaction by checking for duplicates and inserting into database
      * @param transaction The transaction to process
@@ -540,14 +550,12 @@ public class SmsTransactionHandler {
             return false;
         }
 
-        String smsHash = transaction.getSmsHash();
+        Long smsHash = transaction.getSmsHash();
         Log.d(TAG, "Checking for duplicate transaction with hash: " + smsHash);
         
         if (smsHash != null) {
-            int existingCount = viewModel.countTransactionsBySmsHash(smsHash);
-            Log.d(TAG, "Found " + existingCount + " existing transactions with same hash");
-            
-            if (existingCount > 0) {
+            // Claims the hash right away, so the same SMS seen again before the insert lands is still a duplicate
+            if (!viewModel.addSmsHashIfAbsent(smsHash)) {
                 Log.d(TAG, "Duplicate transaction detected, skipping insertion");
                 return false;
             }
@@ -0,0 +1,51 @@
+package com.example.expensemate.utils;
+
+/**
+ * Set membership test with no false negatives and a tunable rate of false positives.
+ * Works on 64-bit hashes of the values, the values themselves are never needed.
+ * Not thread safe, callers synchronize.
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final long numBits;
+    private final int numHashes;
+
+    /**
+     * @param expectedInsertions Number of values after which the false positive rate starts rising above the target
+     * @param falsePositiveRate Target rate of mightContain returning true for a hash never added, e.g. 0.01
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(expectedInsertions, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bits = new long[(int) ((Math.max(m, 64) + 63) / 64)];
+        numBits = bits.length * 64L;
+        numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+    }
+
+    /**
+     * @param hash A well mixed 64-bit hash of the value, such as an SmsFingerprint
+     */
+    public void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long index = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    /**
+     * @return false if the hash was definitely never added, true if it may have been
+     */
+    public boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long index = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
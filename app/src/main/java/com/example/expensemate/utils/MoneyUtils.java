@@ -0,0 +1,70 @@
+package com.example.expensemate.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between amounts stored in paise and the rupee strings shown to and typed by the user.
+ * Amounts are kept as whole paise everywhere else so that sums never pick up floating point error.
+ */
+public class MoneyUtils {
+    public static final String RUPEE_SYMBOL = "₹";
+
+    private MoneyUtils() {
+    }
+
+    /**
+     * @return The amount as rupees with the rupee symbol, e.g. 125050 -> "₹1250.50"
+     */
+    public static String format(long paise) {
+        return RUPEE_SYMBOL + toPlainString(paise);
+    }
+
+    /**
+     * @return The amount as rupees with two decimals and no symbol, e.g. 125050 -> "1250.50"
+     */
+    public static String toPlainString(long paise) {
+        StringBuilder builder = new StringBuilder(24);
+        appendPlain(builder, paise);
+        return builder.toString();
+    }
+
+    /**
+     * Appends the amount as rupees with two decimals and no symbol
+     */
+    public static StringBuilder appendPlain(StringBuilder builder, long paise) {
+        if (paise < 0) {
+            builder.append('-');
+        }
+        long rupees = Math.abs(paise / 100);
+        int fraction = (int) Math.abs(paise % 100);
+        builder.append(rupees).append('.');
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        return builder.append(fraction);
+    }
+
+    /**
+     * @return The amount in rupees, for APIs such as NumberFormat that need a decimal value
+     */
+    public static BigDecimal toRupees(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    /**
+     * Parses a rupee amount typed by the user, e.g. "1250.5" -> 125050.
+     * More than two decimals are rounded half up to the nearest paisa.
+     * @throws NumberFormatException if the text is not a number or does not fit in a long
+     */
+    public static long parseRupees(String rupees) {
+        try {
+            return new BigDecimal(rupees.trim())
+                    .movePointRight(2)
+                    .setScale(0, RoundingMode.HALF_UP)
+                    .longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + rupees);
+        }
+    }
+}
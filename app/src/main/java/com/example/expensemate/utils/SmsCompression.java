@@ -0,0 +1,93 @@
+package com.example.expensemate.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses SMS bodies for the transaction_sms table.
+ * A single bank SMS is too short for plain deflate to find repeats in, so the stream is primed with a
+ * preset dictionary of the phrases bank messages are made of. The first byte of every blob is the
+ * format version, a new dictionary must get a new version and keep the old one readable.
+ */
+public class SmsCompression {
+    private static final byte VERSION_DEFLATE_DICTIONARY_1 = 1;
+
+    // Deflate only looks back 32 KB and prefers the nearest match, so the most common phrases go last
+    private static final byte[] DICTIONARY_1 = (
+            "Federal Bank Pluxee Card Meal wallet Kotak Bank SBI A/c ICICI Bank Credit Card XX ending with " +
+            "Available Balance Avl Bal Avl Lmt Available limit Call 18002662 for dispute or SMS BLOCK " +
+            "If not you, call Not you? Report at https://www. to block your card. " +
+            "NEFT-IMPS-UPI Ref No. RRN UPI Ref: txn Info: Info NEFT- transferred via UPI to VPA @ybl @okaxis @oksbi @paytm " +
+            "has been debited from your account has been credited to your account " +
+            "Dear Customer, Acct XX is credited with Rs from on Dear Customer, your A/c " +
+            "spent on your Credit Card ending with at on ICICI Bank Acct XX debited for Rs on ; credited. " +
+            "ICICI Bank Account XX credited:Rs. on . Info NEFT- Sent Rs. from Kotak Bank AC X to on Ref " +
+            "Received Rs. in your Kotak Bank AC X from on . debited by Rs. INR Rs. Rs "
+    ).getBytes(StandardCharsets.UTF_8);
+
+    private SmsCompression() {
+    }
+
+    /**
+     * @return The compressed text, or null for a null text
+     */
+    public static byte[] compress(String text) {
+        if (text == null) {
+            return null;
+        }
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setDictionary(DICTIONARY_1);
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2 + 16);
+            output.write(VERSION_DEFLATE_DICTIONARY_1);
+            byte[] buffer = new byte[256];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @return The text passed to compress, or null for a null blob
+     * @throws IllegalArgumentException if the blob is not in a known format or is corrupt
+     */
+    public static String decompress(byte[] blob) {
+        if (blob == null) {
+            return null;
+        }
+        if (blob.length == 0 || blob[0] != VERSION_DEFLATE_DICTIONARY_1) {
+            throw new IllegalArgumentException("Unknown SMS compression format");
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(blob, 1, blob.length - 1);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(blob.length * 3);
+            byte[] buffer = new byte[256];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                output.write(buffer, 0, count);
+                if (count == 0 && !inflater.finished()) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY_1);
+                    } else if (inflater.needsInput()) {
+                        throw new IllegalArgumentException("Truncated SMS blob");
+                    }
+                }
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt SMS blob", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.expensemate.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Identifies an SMS for duplicate detection, the transactions table keeps it under a unique index.
+ * 64 bits keep the chance of two different messages colliding below one in a billion up to
+ * hundreds of thousands of messages, where a 32-bit hash already collides.
+ * The value is stored, so the normalization and the hash must never change without a migration.
+ */
+public class SmsFingerprint {
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private SmsFingerprint() {
+    }
+
+    /**
+     * @return The fingerprint of the message, or null if the body or sender is missing
+     */
+    public static Long of(String smsBody, String smsSender) {
+        if (smsBody == null || smsSender == null) {
+            return null;
+        }
+        String normalized = smsBody.trim().toLowerCase(Locale.ROOT) + "|" + smsSender.trim().toLowerCase(Locale.ROOT);
+        return xxHash64(normalized.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // XXH64 with seed 0
+    static long xxHash64(byte[] input) {
+        int length = input.length;
+        int offset = 0;
+        long hash;
+
+        if (length >= 32) {
+            long v1 = PRIME64_1 + PRIME64_2;
+            long v2 = PRIME64_2;
+            long v3 = 0;
+            long v4 = -PRIME64_1;
+            int limit = length - 32;
+            do {
+                v1 = round(v1, readLong(input, offset));
+                v2 = round(v2, readLong(input, offset + 8));
+                v3 = round(v3, readLong(input, offset + 16));
+                v4 = round(v4, readLong(input, offset + 24));
+                offset += 32;
+            } while (offset <= limit);
+
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME64_5;
+        }
+
+        hash += length;
+
+        while (offset + 8 <= length) {
+            hash ^= round(0, readLong(input, offset));
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+            offset += 8;
+        }
+        if (offset + 4 <= length) {
+            hash ^= (readInt(input, offset) & 0xFFFFFFFFL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            offset += 4;
+        }
+        while (offset < length) {
+            hash ^= (input[offset] & 0xFF) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+            offset++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+
+    private static long readLong(byte[] input, int offset) {
+        return (readInt(input, offset) & 0xFFFFFFFFL) | ((long) readInt(input, offset + 4) << 32);
+    }
+
+    private static int readInt(byte[] input, int offset) {
+        return (input[offset] & 0xFF) | (input[offset + 1] & 0xFF) << 8 |
+                (input[offset + 2] & 0xFF) << 16 | (input[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -6,17 +6,20 @@ import androidx.lifecycle.LiveData;
 import com.example.expensemate.data.Account;
 import com.example.expensemate.repository.AccountRepository;
 import java.util.List;
+import java.util.Map;
 
 public class AccountViewModel extends AndroidViewModel {
     private AccountRepository repository;
     private LiveData<List<Account>> allAccounts;
     private LiveData<Account> defaultAccount;
+    private LiveData<Map<Long, Long>> accountBalances;
 
     public AccountViewModel(Application application) {
         super(application);
         repository = new AccountRepository(application);
         allAccounts = repository.getAllAccounts();
         defaultAccount = repository.getDefaultAccount();
+        accountBalances = repository.getAccountBalances();
     }
 
     public LiveData<List<Account>> getAllAccounts() {
@@ -27,6 +30,10 @@ public class AccountViewModel extends AndroidViewModel {
         return defaultAccount;
     }
 
+    public LiveData<Map<Long, Long>> getAccountBalances() {
+        return accountBalances;
+    }
+
     public Account getDefaultAccountSync() {
         return repository.getDefaultAccountSync();
     }
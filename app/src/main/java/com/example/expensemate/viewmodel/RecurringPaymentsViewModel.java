@@ -11,8 +11,8 @@ import java.util.Date;
 public class RecurringPaymentsViewModel extends AndroidViewModel {
     private RecurringPaymentRepository repository;
     private LiveData<List<RecurringPayment>> allRecurringPayments;
-    private LiveData<Double> totalAmount;
-    private LiveData<Double> remainingAmount;
+    private LiveData<Long> totalAmount;
+    private LiveData<Long> remainingAmount;
 
     public RecurringPaymentsViewModel(Application application) {
         super(application);
@@ -26,11 +26,11 @@ public class RecurringPaymentsViewModel extends AndroidViewModel {
         return allRecurringPayments;
     }
 
-    public LiveData<Double> getTotalAmount() {
+    public LiveData<Long> getTotalAmount() {
         return totalAmount;
     }
 
-    public LiveData<Double> getRemainingAmount() {
+    public LiveData<Long> getRemainingAmount() {
         return remainingAmount;
     }
 
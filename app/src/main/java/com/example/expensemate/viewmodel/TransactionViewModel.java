@@ -2,34 +2,59 @@ package com.example.expensemate.viewmodel;
 
 import android.app.Application;
 import android.util.Log;
+import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+import androidx.room.InvalidationTracker;
 import com.example.expensemate.data.AppDatabase;
+import com.example.expensemate.data.SmsHashCache;
 import com.example.expensemate.data.Transaction;
 import com.example.expensemate.data.TransactionDao;
+import com.example.expensemate.data.TransactionFilter;
+import com.example.expensemate.data.TransactionListItem;
+import com.example.expensemate.data.TransactionPagingSource;
 import com.example.expensemate.data.CategorySum;
 import com.example.expensemate.data.Account;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.ArrayList;
 import java.text.ParseException;
 
 public class TransactionViewModel extends AndroidViewModel {
     private static final String TAG = "TransactionViewModel";
+    private static final int PAGE_SIZE = 50;
+    // At most this many rows are held in memory, pages far from the visible ones are dropped
+    private static final PagingConfig PAGING_CONFIG =
+            new PagingConfig(PAGE_SIZE, PAGE_SIZE / 2, false, PAGE_SIZE * 2, PAGE_SIZE * 6);
     private final AppDatabase database;
     private final TransactionDao transactionDao;
     private final ExecutorService executorService;
     private final MutableLiveData<String> selectedMonth = new MutableLiveData<>();
     private final MutableLiveData<String> selectedYear = new MutableLiveData<>();
-    private final MutableLiveData<Double> totalExpense = new MutableLiveData<>(0.0);
-    private final MutableLiveData<Double> totalIncome = new MutableLiveData<>(0.0);
-    private final MutableLiveData<List<Transaction>> filteredTransactions = new MutableLiveData<>();
+    private final MutableLiveData<Long> totalExpense = new MutableLiveData<>(0L);
+    private final MutableLiveData<Long> totalIncome = new MutableLiveData<>(0L);
+    private final MutableLiveData<TransactionFilter> transactionFilter = new MutableLiveData<>();
+    private final LiveData<PagingData<TransactionListItem>> filteredTransactions;
+    private final MutableLiveData<TransactionFilter> accountTransactionFilter = new MutableLiveData<>();
+    private final LiveData<PagingData<TransactionListItem>> accountTransactions;
+    // Paging sources that have been handed out, invalidated whenever the transactions table changes
+    private final Set<TransactionPagingSource> pagingSources =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private final InvalidationTracker.Observer transactionsObserver;
     private final AccountViewModel accountViewModel;
     private final MutableLiveData<Long> selectedAccountId = new MutableLiveData<>();
 
@@ -37,7 +62,7 @@ public class TransactionViewModel extends AndroidViewModel {
     private String description;
     private String receiver;
     private String category;
-    private Double amount;
+    private Long amountPaise;
     private String transactionType;
     private Boolean excludeFromSummary;
     private Long linkedRecurringPaymentId;
@@ -51,6 +76,17 @@ public class TransactionViewModel extends AndroidViewModel {
         transactionDao = database.transactionDao();
         executorService = Executors.newSingleThreadExecutor();
         accountViewModel = new AccountViewModel(application);
+
+        filteredTransactions = pagedTransactions(transactionFilter);
+        accountTransactions = pagedTransactions(accountTransactionFilter);
+        // Reload the visible pages after any write to transactions, including SMS imports done outside this class
+        transactionsObserver = new InvalidationTracker.Observer("transactions") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidatePagingSources();
+            }
+        };
+        database.getInvalidationTracker().addObserver(transactionsObserver);
         
         // Initialize with current month and year for expense/summary screens
         Calendar calendar = Calendar.getInstance();
@@ -86,17 +122,18 @@ public class TransactionViewModel extends AndroidViewModel {
         
         if (month != null && year != null) {
             Log.d(TAG, "Updating LiveData for period: " + month + "/" + year);
+            int yearMonth = getYearMonth(month, year);
 
             // Update expense total
             executorService.execute(() -> {
-                Double expense = transactionDao.getExpenseForExpenseScreen(month, year, accountId);
+                long expense = transactionDao.getExpenseForExpenseScreen(yearMonth, accountId);
                 Log.d(TAG, "Fetched expense total: " + expense);
                 totalExpense.postValue(expense);
             });
 
             // Update income total
             executorService.execute(() -> {
-                Double income = transactionDao.getIncomeForExpenseScreen(month, year, accountId);
+                long income = transactionDao.getIncomeForExpenseScreen(yearMonth, accountId);
                 Log.d(TAG, "Fetched income total: " + income);
                 totalIncome.postValue(income);
             });
@@ -106,6 +143,26 @@ public class TransactionViewModel extends AndroidViewModel {
         }
     }
 
+    /**
+     * Converts a month ("MM") and year ("yyyy") into the yyyyMM key of monthly_category_totals
+     */
+    private static int getYearMonth(String month, String year) {
+        return Integer.parseInt(year) * 100 + Integer.parseInt(month);
+    }
+
+    /**
+     * Converts a month ("MM") and year ("yyyy") into the half-open range [start, end) of epoch millis
+     * covering that month in the device time zone, as used by the summary queries
+     */
+    private static long[] getMonthRange(String month, String year) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(Integer.parseInt(year), Integer.parseInt(month) - 1, 1);
+        long start = calendar.getTimeInMillis();
+        calendar.add(Calendar.MONTH, 1);
+        return new long[] {start, calendar.getTimeInMillis()};
+    }
+
     public void setSelectedMonthYear(String month, String year) {
         Log.d(TAG, "Setting new period: " + month + "/" + year);
         selectedMonth.setValue(month);
@@ -121,42 +178,31 @@ public class TransactionViewModel extends AndroidViewModel {
         return selectedYear;
     }
 
-    public LiveData<Double> getTotalExpense() {
+    public LiveData<Long> getTotalExpense() {
         return totalExpense;
     }
 
-    public LiveData<Double> getTotalIncome() {
+    public LiveData<Long> getTotalIncome() {
         return totalIncome;
     }
 
-    public double getTotalIncomeForAccount(long accountId) {
-        return transactionDao.getTotalIncomeForAccountDetailsScreen(accountId);
-    }
-
-    public double getTotalExpenseForAccount(long accountId) {
-        return transactionDao.getTotalExpenseForAccountDetailsScreen(accountId);
-    }
-
-    public LiveData<List<Transaction>> getTransactionsByDateRangeAndAccount(Date startDate, Date endDate, long accountId) {
-        return transactionDao.getTransactionsForAccountDetailsScreen(startDate, endDate, accountId);
-    }
-
     public LiveData<List<CategorySum>> getCategorySumsByMonthYearAndAccount(String month, String year, Long accountId) {
-        return transactionDao.getExpenseCategorySumForSummaryScreen(month, year, accountId);
+        return transactionDao.getExpenseCategorySumForSummaryScreen(getYearMonth(month, year), accountId);
     }
 
     public LiveData<List<CategorySum>> getIncomeCategorySumsByMonthYearAndAccount(String month, String year, Long accountId) {
-        return transactionDao.getIncomeCategorySumForSummaryScreen(month, year, accountId);
+        return transactionDao.getIncomeCategorySumForSummaryScreen(getYearMonth(month, year), accountId);
     }
 
-    public LiveData<List<Transaction>> getTransactionsByCategoryAndPeriod(String category, String month, String year, Long accountId, String transactionType) {
-        return transactionDao.getTransactionsByCategoryForSummaryScreen(category, month, year, accountId, transactionType);
+    public LiveData<List<TransactionListItem>> getTransactionsByCategoryAndPeriod(String category, String month, String year, Long accountId, String transactionType) {
+        long[] period = getMonthRange(month, year);
+        return transactionDao.getTransactionsByCategoryForSummaryScreen(category, period[0], period[1], accountId, transactionType);
     }
 
     public void insertTransaction(Transaction transaction) {
         executorService.execute(() -> {
             try {
-                Log.d(TAG, "Inserting transaction: " + transaction.getAmount() + " " + transaction.getTransactionType());
+                Log.d(TAG, "Inserting transaction: " + transaction.getAmountPaise() + " " + transaction.getTransactionType());
                 // If no account is set, use the default account
                 if (transaction.getAccountId() == null) {
                     Account defaultAccount = accountViewModel.getDefaultAccountSync();
@@ -164,58 +210,168 @@ public class TransactionViewModel extends AndroidViewModel {
                         transaction.setAccountId(defaultAccount.getId());
                     }
                 }
-                transactionDao.insertTransaction(transaction);
+                if (!transactionDao.insertTransaction(transaction)) {
+                    Log.d(TAG, "Transaction already exists, not inserted");
+                    return;
+                }
+                SmsHashCache.getInstance(database).recordInserted(transaction.getSmsHash());
                 updatePeriodLiveData();
-                applyFilters();
             } catch (Exception e) {
                 Log.e(TAG, "Error inserting transaction", e);
+                if (transaction.getSmsHash() != null) {
+                    // Let the SMS be picked up again by the next scan
+                    SmsHashCache.getInstance(database).forget(transaction.getSmsHash());
+                }
             }
         });
     }
 
-    public void deleteTransaction(Transaction transaction) {
+    /**
+     * Inserts the transactions in one database transaction on the calling thread, which must not be the main thread.
+     * The totals are refreshed once for the whole batch.
+     * @return The id of each inserted transaction, -1 for those skipped as duplicates
+     */
+    public long[] insertTransactionBatch(List<Transaction> transactions) {
+        Long defaultAccountId = null;
+        for (Transaction transaction : transactions) {
+            if (transaction.getAccountId() == null) {
+                if (defaultAccountId == null) {
+                    Account defaultAccount = accountViewModel.getDefaultAccountSync();
+                    if (defaultAccount == null) {
+                        break;
+                    }
+                    defaultAccountId = defaultAccount.getId();
+                }
+                transaction.setAccountId(defaultAccountId);
+            }
+        }
+        try {
+            long[] ids = transactionDao.insertTransactions(transactions);
+            SmsHashCache smsHashCache = SmsHashCache.getInstance(database);
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != -1) {
+                    smsHashCache.recordInserted(transactions.get(i).getSmsHash());
+                }
+            }
+            Log.d(TAG, "Inserted batch of " + transactions.size() + " transactions");
+            updatePeriodLiveData();
+            return ids;
+        } catch (RuntimeException e) {
+            SmsHashCache smsHashCache = SmsHashCache.getInstance(database);
+            for (Transaction transaction : transactions) {
+                if (transaction.getSmsHash() != null) {
+                    smsHashCache.forget(transaction.getSmsHash());
+                }
+            }
+            throw e;
+        }
+    }
+
+    public void deleteTransaction(TransactionListItem transaction) {
         executorService.execute(() -> {
             try {
-                Log.d(TAG, "Deleting transaction: " + transaction.getAmount() + " " + transaction.getTransactionType());
-                transactionDao.deleteTransaction(transaction);
+                Log.d(TAG, "Deleting transaction: " + transaction.getAmountPaise() + " " + transaction.getTransactionType());
+                transactionDao.deleteTransactionById(transaction.getId());
+                SmsHashCache.getInstance(database).invalidate();
                 updatePeriodLiveData();
-                applyFilters();
             } catch (Exception e) {
                 Log.e(TAG, "Error deleting transaction", e);
             }
         });
     }
 
+    public void setExcludedFromSummary(long transactionId, boolean excluded) {
+        executorService.execute(() -> {
+            try {
+                Log.d(TAG, "Setting transaction " + transactionId + " excluded from summary: " + excluded);
+                transactionDao.setExcludedFromSummary(transactionId, excluded);
+                updatePeriodLiveData();
+            } catch (Exception e) {
+                Log.e(TAG, "Error updating transaction", e);
+            }
+        });
+    }
+
+    /**
+     * Loads the full transaction, SMS fields included, for the edit dialog
+     */
+    public LiveData<Transaction> getTransactionById(long transactionId) {
+        MutableLiveData<Transaction> result = new MutableLiveData<>();
+        executorService.execute(() -> {
+            Transaction transaction = transactionDao.getTransactionById(transactionId);
+            if (transaction != null) {
+                transactionDao.loadSms(transaction);
+            }
+            result.postValue(transaction);
+        });
+        return result;
+    }
+
     public void updateTransaction(Transaction oldTransaction, Transaction newTransaction) {
         executorService.execute(() -> {
             try {
-                Log.d(TAG, "Updating transaction: " + newTransaction.getAmount() + " " + newTransaction.getTransactionType());
+                Log.d(TAG, "Updating transaction: " + newTransaction.getAmountPaise() + " " + newTransaction.getTransactionType());
                 transactionDao.updateTransaction(
                     newTransaction.getId(),
-                    newTransaction.getAmount(),
+                    newTransaction.getAmountPaise(),
                     newTransaction.getDescription(),
                     newTransaction.getDate(),
+                    newTransaction.getYearMonth(),
                     newTransaction.getTransactionType(),
                     newTransaction.getReceiverName(),
-                    newTransaction.getSmsBody(),
-                    newTransaction.getSmsSender(),
                     newTransaction.getCategory(),
                     newTransaction.getLinkedRecurringPaymentId(),
                     newTransaction.getAccountId(),
                     newTransaction.isExcludedFromSummary()
                 );
                 updatePeriodLiveData();
-                applyFilters();
             } catch (Exception e) {
                 Log.e(TAG, "Error updating transaction", e);
             }
         });
     }
 
-    public LiveData<List<Transaction>> getFilteredTransactions() {
+    public LiveData<PagingData<TransactionListItem>> getFilteredTransactions() {
         return filteredTransactions;
     }
 
+    public LiveData<PagingData<TransactionListItem>> getAccountTransactions() {
+        return accountTransactions;
+    }
+
+    /**
+     * Sets the date range and account of the list returned by getAccountTransactions
+     */
+    public void setAccountTransactionFilter(Date startDate, Date endDate, long accountId) {
+        accountTransactionFilter.setValue(
+                TransactionFilter.forAccount(startDate.getTime(), endDate.getTime(), accountId));
+    }
+
+    /**
+     * Pages the transactions matching the latest filter, starting over from the newest row when the filter changes
+     */
+    private LiveData<PagingData<TransactionListItem>> pagedTransactions(LiveData<TransactionFilter> filter) {
+        LiveData<PagingData<TransactionListItem>> pages = Transformations.switchMap(filter, currentFilter ->
+                PagingLiveData.getLiveData(new Pager<>(PAGING_CONFIG, () -> {
+                    TransactionPagingSource source =
+                            new TransactionPagingSource(transactionDao, currentFilter, database.getQueryExecutor());
+                    pagingSources.add(source);
+                    return source;
+                })));
+        return PagingLiveData.cachedIn(pages, this);
+    }
+
+    private void invalidatePagingSources() {
+        List<TransactionPagingSource> sources;
+        synchronized (pagingSources) {
+            sources = new ArrayList<>(pagingSources);
+            pagingSources.clear();
+        }
+        for (TransactionPagingSource source : sources) {
+            source.invalidate();
+        }
+    }
+
     public void setSelectedAccount(Long accountId) {
         Log.d(TAG, "Setting selected account: " + accountId);
         selectedAccountId.setValue(accountId);
@@ -244,13 +400,13 @@ public class TransactionViewModel extends AndroidViewModel {
         return toDate;
     }
 
-    public void setFilters(String description, String receiver, String category, Double amount,
+    public void setFilters(String description, String receiver, String category, Long amountPaise,
                           String transactionType, Boolean excludeFromSummary, Long linkedRecurringPaymentId,
                           String fromDate, String toDate) {
         this.description = description;
         this.receiver = receiver;
         this.category = category;
-        this.amount = amount;
+        this.amountPaise = amountPaise;
         this.transactionType = transactionType;
         this.excludeFromSummary = excludeFromSummary;
         this.linkedRecurringPaymentId = linkedRecurringPaymentId;
@@ -263,7 +419,7 @@ public class TransactionViewModel extends AndroidViewModel {
         this.description = null;
         this.receiver = null;
         this.category = null;
-        this.amount = null;
+        this.amountPaise = null;
         this.transactionType = null;
         this.excludeFromSummary = null;
         this.linkedRecurringPaymentId = null;
@@ -280,55 +436,63 @@ public class TransactionViewModel extends AndroidViewModel {
     }
 
     private void applyFilters() {
-        executorService.execute(() -> {
-            try {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                Date from = dateFormat.parse(fromDate);
-                Date to = dateFormat.parse(toDate);
-                
-                // Set time to start of day for from date
-                Calendar fromCal = Calendar.getInstance();
-                fromCal.setTime(from);
-                fromCal.set(Calendar.HOUR_OF_DAY, 0);
-                fromCal.set(Calendar.MINUTE, 0);
-                fromCal.set(Calendar.SECOND, 0);
-                fromCal.set(Calendar.MILLISECOND, 0);
-                
-                // Set time to end of day for to date
-                Calendar toCal = Calendar.getInstance();
-                toCal.setTime(to);
-                toCal.set(Calendar.HOUR_OF_DAY, 23);
-                toCal.set(Calendar.MINUTE, 59);
-                toCal.set(Calendar.SECOND, 59);
-                toCal.set(Calendar.MILLISECOND, 999);
-                
-                List<Transaction> transactions = transactionDao.getFilteredTransactions(
-                    fromCal.getTime(),
-                    toCal.getTime(),
-                    selectedAccountId.getValue(),
-                    description,
-                    receiver,
-                    category,
-                    amount,
-                    transactionType,
-                    excludeFromSummary,
-                    linkedRecurringPaymentId
-                );
-                
-                filteredTransactions.postValue(transactions);
-            } catch (ParseException e) {
-                Log.e(TAG, "Error parsing dates", e);
-            }
-        });
+        try {
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+            Date from = dateFormat.parse(fromDate);
+            Date to = dateFormat.parse(toDate);
+            
+            // Set time to start of day for from date
+            Calendar fromCal = Calendar.getInstance();
+            fromCal.setTime(from);
+            fromCal.set(Calendar.HOUR_OF_DAY, 0);
+            fromCal.set(Calendar.MINUTE, 0);
+            fromCal.set(Calendar.SECOND, 0);
+            fromCal.set(Calendar.MILLISECOND, 0);
+            
+            // Set time to end of day for to date
+            Calendar toCal = Calendar.getInstance();
+            toCal.setTime(to);
+            toCal.set(Calendar.HOUR_OF_DAY, 23);
+            toCal.set(Calendar.MINUTE, 59);
+            toCal.set(Calendar.SECOND, 59);
+            toCal.set(Calendar.MILLISECOND, 999);
+            
+            transactionFilter.setValue(new TransactionFilter(
+                fromCal.getTimeInMillis(),
+                toCal.getTimeInMillis(),
+                selectedAccountId.getValue(),
+                description,
+                receiver,
+                category,
+                amountPaise,
+                transactionType,
+                excludeFromSummary,
+                linkedRecurringPaymentId
+            ));
+        } catch (ParseException e) {
+            Log.e(TAG, "Error parsing dates", e);
+        }
+    }
+
+    /**
+     * @return The senders of the SMS transactions were read from. Must not be called on the main thread.
+     */
+    public List<String> getSmsSendersSync() {
+        return transactionDao.getSmsSenders();
     }
 
-    public int countTransactionsBySmsHash(String smsHash) {
-        return transactionDao.countTransactionsBySmsHash(smsHash);
+    /**
+     * Claims an SMS hash for a transaction about to be inserted. Must not be called on the main thread.
+     * @return false if a transaction with the hash exists or was claimed before
+     */
+    public boolean addSmsHashIfAbsent(long smsHash) {
+        return SmsHashCache.getInstance(database).addIfAbsent(smsHash);
     }
 
     @Override
     protected void onCleared() {
         super.onCleared();
+        database.getInvalidationTracker().removeObserver(transactionsObserver);
         executorService.shutdown();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,318 @@
+package com.example.expensemate.data;
+
+import android.database.Cursor;
+
+import com.example.expensemate.utils.SmsCompression;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes every entity kind through BackupWriter and reads it back through BackupReader, and checks that
+ * BackupReader.verify rejects damaged files. A restore only clears the local data after verify passes.
+ */
+public class BackupFormatTest {
+    private static final List<String> EXPORT_COLUMNS = Arrays.asList(
+            "id", "amountPaise", "description", "date", "transactionType", "receiverName", "category",
+            "isExcludedFromSummary", "accountId", "linkedRecurringPaymentId", "compressedBody", "sender");
+
+    // Rows as TransactionDao.getTransactionsForExport returns them, newest first, with the body uncompressed
+    private static final Object[][] TRANSACTIONS = {
+        {7L, 125000L, "Amazon", 1706745600000L, "DEBIT", "AMAZON", "Shopping", 0, 1L, null,
+                "ICICI Bank Acct XX123 debited for Rs 1,250.00 on 01-Feb-24; AMAZON credited.", "AX-ICICIB"},
+        // Every nullable field null, Transaction.setCategory keeps the category from being one
+        {6L, 1L, null, null, "CREDIT", null, "Default", 0, null, null, null, null},
+        // A sender without a body
+        {5L, -25050L, "Refund", 1706659200000L, "CREDIT", "AMAZON", "Shopping", 1, 2L, 3L, null, "VM-HDFCBK"},
+        // A body without a sender
+        {4L, Long.MAX_VALUE, "Salary ₹", 1706572800000L, "CREDIT", "Employer", "Salary", 0, 1L, null,
+                "Rs 1,00,000.00 credited to A/c XX5678 on 30/01/2024", null},
+        {3L, 0L, "", 1000L, "DEBIT", "", "Shopping", 0, 1L, null, "", "AX-ICICIB"},
+        // Before the epoch
+        {2L, Long.MIN_VALUE, "Old", -86400000L, "DEBIT", "AMAZON", "Shopping", 1, null, 4L, null, "AX-ICICIB"},
+    };
+
+    @Test
+    public void roundTrip_gzip() throws IOException {
+        assertRoundTrip(BackupCodec.GZIP);
+    }
+
+    @Test
+    public void roundTrip_uncompressed() throws IOException {
+        assertRoundTrip(BackupCodec.NONE);
+    }
+
+    @Test
+    public void roundTrip_emptySections() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BackupWriter writer = new BackupWriter(bytes, BackupCodec.GZIP)) {
+            writer.writeCategories(new ArrayList<>());
+            writer.writeRecurringPayments(new ArrayList<>());
+            writer.writeAccounts(new ArrayList<>());
+            assertEquals(0, writer.writeTransactions(exportCursor(new Object[0][])));
+            writer.finish();
+        }
+
+        CollectingSink sink = new CollectingSink();
+        BackupReader.read(new ByteArrayInputStream(bytes.toByteArray()), sink);
+        assertTrue(sink.categories.isEmpty());
+        assertTrue(sink.payments.isEmpty());
+        assertTrue(sink.accounts.isEmpty());
+        assertTrue(sink.transactions.isEmpty());
+    }
+
+    @Test
+    public void verify_acceptsCompleteBackup() throws IOException {
+        for (BackupCodec codec : BackupCodec.values()) {
+            File file = writeFile(write(codec, new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
+            try {
+                BackupReader.verify(file);
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void verify_rejectsTruncatedBackup() throws IOException {
+        byte[] backup = write(BackupCodec.GZIP, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        // Cut in the header, in the payload, and in the checksum footer
+        for (int length : new int[]{0, 3, 6, backup.length / 2, backup.length - 4, backup.length - 1}) {
+            assertRejected("Truncated to " + length + " bytes", Arrays.copyOf(backup, length));
+        }
+    }
+
+    @Test
+    public void verify_rejectsFlippedPayloadByte() throws IOException {
+        for (BackupCodec codec : BackupCodec.values()) {
+            byte[] backup = write(codec, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+            for (int i = BackupWriter.MAGIC.length + 2; i < backup.length - 4; i += 7) {
+                byte[] damaged = backup.clone();
+                damaged[i] ^= 0x10;
+                assertRejected(codec + " byte " + i + " flipped", damaged);
+            }
+        }
+    }
+
+    @Test
+    public void verify_rejectsBackupWithoutFinish() throws IOException {
+        // Enough rows that the payload outgrows the write buffers and reaches the file
+        Object[][] rows = new Object[5000][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = TRANSACTIONS[i % TRANSACTIONS.length].clone();
+            rows[i][0] = (long) (rows.length - i);
+        }
+        for (int count : new int[]{0, rows.length}) {
+            File file = File.createTempFile("backup", ".bin");
+            try {
+                try (BackupWriter writer = BackupWriter.open(file, BackupCodec.NONE)) {
+                    writer.writeCategories(new ArrayList<>());
+                    writer.writeTransactions(exportCursor(Arrays.copyOf(rows, count)));
+                }
+                assertTrue(count == 0 || file.length() > 64 * 1024);
+                BackupReader.verify(file);
+                fail("Backup of " + count + " rows without finish was accepted");
+            } catch (IOException expected) {
+                // The caller keeps its local data
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    private static void assertRejected(String message, byte[] backup) throws IOException {
+        File file = writeFile(backup);
+        try {
+            BackupReader.verify(file);
+            fail(message + " was accepted");
+        } catch (IOException expected) {
+            // The caller keeps its local data
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static File writeFile(byte[] bytes) throws IOException {
+        File file = File.createTempFile("backup", ".bin");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+        return file;
+    }
+
+    private static void assertRoundTrip(BackupCodec codec) throws IOException {
+        Category food = category(1, "Food", "EXPENSE");
+        Category salary = category(2, "Salary", "INCOME");
+
+        RecurringPayment rent = new RecurringPayment("Rent", 1500000, 5, new Date(1767225600000L));
+        rent.setId(3);
+        rent.setCompleted(true);
+        rent.setLastCompletedDate(new Date(1704412800000L));
+        RecurringPayment gym = new RecurringPayment("Gym", 99900, 31, null);
+        gym.setId(4);
+
+        Account savings = new Account("Savings", "1234", "HDFC", new Date(1800000000000L), "Salary account");
+        savings.setId(1);
+        savings.setDefault(true);
+        Account wallet = new Account("Wallet", null, null, null, null);
+        wallet.setId(2);
+
+        CollectingSink sink = new CollectingSink();
+        BackupReader.read(new ByteArrayInputStream(write(codec, Arrays.asList(food, salary),
+                Arrays.asList(rent, gym), Arrays.asList(savings, wallet))), sink);
+
+        assertEquals(2, sink.categories.size());
+        assertCategory(food, sink.categories.get(0));
+        assertCategory(salary, sink.categories.get(1));
+
+        assertEquals(2, sink.payments.size());
+        assertPayment(rent, sink.payments.get(0));
+        assertPayment(gym, sink.payments.get(1));
+
+        assertEquals(2, sink.accounts.size());
+        assertAccount(savings, sink.accounts.get(0));
+        assertAccount(wallet, sink.accounts.get(1));
+
+        assertEquals(TRANSACTIONS.length, sink.transactions.size());
+        for (int i = 0; i < TRANSACTIONS.length; i++) {
+            assertTransaction(TRANSACTIONS[i], sink.transactions.get(i));
+        }
+    }
+
+    static byte[] write(BackupCodec codec, List<Category> categories, List<RecurringPayment> payments,
+                        List<Account> accounts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BackupWriter writer = new BackupWriter(bytes, codec)) {
+            writer.writeCategories(categories);
+            writer.writeRecurringPayments(payments);
+            writer.writeAccounts(accounts);
+            assertEquals(TRANSACTIONS.length, writer.writeTransactions(exportCursor(TRANSACTIONS)));
+            writer.finish();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Category category(long id, String name, String type) {
+        Category category = new Category(name, type);
+        category.setId(id);
+        return category;
+    }
+
+    private static void assertCategory(Category expected, Category actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getType(), actual.getType());
+    }
+
+    private static void assertPayment(RecurringPayment expected, RecurringPayment actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getAmountPaise(), actual.getAmountPaise());
+        assertEquals(expected.getDueDay(), actual.getDueDay());
+        assertEquals(expected.getExpiryDate(), actual.getExpiryDate());
+        assertEquals(expected.isCompleted(), actual.isCompleted());
+        assertEquals(expected.getLastCompletedDate(), actual.getLastCompletedDate());
+    }
+
+    private static void assertAccount(Account expected, Account actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getAccountNumber(), actual.getAccountNumber());
+        assertEquals(expected.getBank(), actual.getBank());
+        assertEquals(expected.getExpiryDate(), actual.getExpiryDate());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.isDefault(), actual.isDefault());
+    }
+
+    private static void assertTransaction(Object[] row, Transaction actual) {
+        String message = "Transaction " + row[0];
+        assertEquals(message, row[0], actual.getId());
+        assertEquals(message, row[1], actual.getAmountPaise());
+        assertEquals(message, row[2], actual.getDescription());
+        // Without a date the restored transaction keeps the one it was created with
+        if (row[3] != null) {
+            assertEquals(message, new Date((Long) row[3]), actual.getDate());
+        }
+        assertEquals(message, row[4], actual.getTransactionType());
+        assertEquals(message, row[5], actual.getReceiverName());
+        assertEquals(message, row[6], actual.getCategory());
+        assertEquals(message, (Integer) row[7] != 0, actual.isExcludedFromSummary());
+        assertEquals(message, row[8], actual.getAccountId());
+        assertEquals(message, row[9], actual.getLinkedRecurringPaymentId());
+        assertEquals(message, row[10], actual.getSmsBody());
+        assertEquals(message, row[11], actual.getSmsSender());
+    }
+
+    // A cursor over rows of EXPORT_COLUMNS, the body is compressed the way transaction_sms stores it
+    private static Cursor exportCursor(Object[][] rows) {
+        int[] position = {-1};
+        return (Cursor) Proxy.newProxyInstance(Cursor.class.getClassLoader(), new Class<?>[]{Cursor.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnIndexOrThrow":
+                            return EXPORT_COLUMNS.indexOf((String) args[0]);
+                        case "getCount":
+                            return rows.length;
+                        case "moveToNext":
+                            return ++position[0] < rows.length;
+                        case "close":
+                            return null;
+                    }
+                    Object value = rows[position[0]][(Integer) args[0]];
+                    switch (method.getName()) {
+                        case "isNull":
+                            return value == null;
+                        case "getLong":
+                            return ((Number) value).longValue();
+                        case "getInt":
+                            return ((Number) value).intValue();
+                        case "getString":
+                            return (String) value;
+                        case "getBlob":
+                            return SmsCompression.compress((String) value);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static class CollectingSink implements BackupReader.Sink {
+        final List<Category> categories = new ArrayList<>();
+        final List<RecurringPayment> payments = new ArrayList<>();
+        final List<Account> accounts = new ArrayList<>();
+        final List<Transaction> transactions = new ArrayList<>();
+
+        @Override
+        public void onCategory(Category category) {
+            categories.add(category);
+        }
+
+        @Override
+        public void onRecurringPayment(RecurringPayment payment) {
+            payments.add(payment);
+        }
+
+        @Override
+        public void onAccount(Account account) {
+            accounts.add(account);
+        }
+
+        @Override
+        public void onTransaction(Transaction transaction) {
+            transactions.add(transaction);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.expensemate.data;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reads text backups in the format BackupDataLoader exported before the binary one, from the fixtures
+ * under resources/legacy.
+ */
+public class LegacyBackupReaderTest {
+
+    @Test
+    public void read_sectionsAfterHeaders() throws IOException {
+        CollectingSink sink = read("/legacy/backup.txt", null);
+
+        // The category without a type is dropped
+        assertEquals(2, sink.categories.size());
+        assertEquals("Food", sink.categories.get(0).getName());
+        assertEquals("EXPENSE", sink.categories.get(0).getType());
+        assertEquals("Salary", sink.categories.get(1).getName());
+        assertEquals("INCOME", sink.categories.get(1).getType());
+
+        // The payment with an unparseable due day is skipped whole
+        assertEquals(2, sink.payments.size());
+        RecurringPayment rent = sink.payments.get(0);
+        assertEquals(3, rent.getId());
+        assertEquals("Rent", rent.getName());
+        assertEquals(1500000, rent.getAmountPaise());
+        assertEquals(5, rent.getDueDay());
+        assertEquals(date("2026-12-31T00:00:00Z"), rent.getExpiryDate());
+        assertTrue(rent.isCompleted());
+        assertEquals(date("2024-01-05T00:00:00Z"), rent.getLastCompletedDate());
+        RecurringPayment gym = sink.payments.get(1);
+        assertEquals(5, gym.getId());
+        assertEquals("Gym", gym.getName());
+        assertEquals(99900, gym.getAmountPaise());
+        assertEquals(31, gym.getDueDay());
+        assertFalse(gym.isCompleted());
+        assertNull(gym.getLastCompletedDate());
+
+        // The account with an unparseable expiry date is skipped whole
+        assertEquals(2, sink.accounts.size());
+        Account savings = sink.accounts.get(0);
+        assertEquals(1, savings.getId());
+        assertEquals("Savings", savings.getName());
+        assertEquals("1234", savings.getAccountNumber());
+        assertEquals("HDFC", savings.getBank());
+        assertEquals(date("2030-06-30T00:00:00Z"), savings.getExpiryDate());
+        assertEquals("Salary account", savings.getDescription());
+        assertTrue(savings.isDefault());
+        Account wallet = sink.accounts.get(1);
+        assertEquals(2, wallet.getId());
+        assertEquals("Wallet", wallet.getName());
+        assertEquals("", wallet.getAccountNumber());
+        assertNull(wallet.getExpiryDate());
+        assertFalse(wallet.isDefault());
+
+        // The transaction with an unparseable amount is skipped whole, the one after it is still read
+        assertEquals(2, sink.transactions.size());
+        Transaction amazon = sink.transactions.get(0);
+        assertEquals(7, amazon.getId());
+        assertEquals(125000, amazon.getAmountPaise());
+        assertEquals("Amazon", amazon.getDescription());
+        assertEquals(date("2024-02-01T10:30:00Z"), amazon.getDate());
+        assertEquals("DEBIT", amazon.getTransactionType());
+        assertEquals("AMAZON", amazon.getReceiverName());
+        assertEquals("Shopping", amazon.getCategory());
+        assertFalse(amazon.isExcludedFromSummary());
+        assertEquals(Long.valueOf(1), amazon.getAccountId());
+        assertNull(amazon.getLinkedRecurringPaymentId());
+        assertEquals("ICICI Bank Acct XX123 debited for Rs 1,250.00 on 01-Feb-24; AMAZON credited.",
+                amazon.getSmsBody());
+        assertEquals("AX-ICICIB", amazon.getSmsSender());
+        Transaction rentPaid = sink.transactions.get(1);
+        assertEquals(5, rentPaid.getId());
+        assertEquals(1500000, rentPaid.getAmountPaise());
+        assertEquals(date("2024-01-30T09:00:00Z"), rentPaid.getDate());
+        // An empty type was a debit
+        assertEquals("DEBIT", rentPaid.getTransactionType());
+        assertTrue(rentPaid.isExcludedFromSummary());
+        assertNull(rentPaid.getAccountId());
+        assertEquals(Long.valueOf(3), rentPaid.getLinkedRecurringPaymentId());
+        assertNull(rentPaid.getSmsBody());
+        assertNull(rentPaid.getSmsSender());
+    }
+
+    @Test
+    public void read_driveSectionWithoutHeader() throws IOException {
+        CollectingSink sink = read("/legacy/drive_transactions.txt", LegacyBackupReader.TRANSACTIONS);
+
+        assertTrue(sink.categories.isEmpty());
+        assertTrue(sink.payments.isEmpty());
+        assertTrue(sink.accounts.isEmpty());
+        assertEquals(2, sink.transactions.size());
+        Transaction refund = sink.transactions.get(0);
+        assertEquals(9, refund.getId());
+        assertEquals(50, refund.getAmountPaise());
+        assertEquals(date("2024-01-29T12:00:00Z"), refund.getDate());
+        assertEquals("CREDIT", refund.getTransactionType());
+        assertEquals(Long.valueOf(2), refund.getAccountId());
+        assertEquals("Rs 0.50 refunded to A/c XX5678: Amazon", refund.getSmsBody());
+        assertEquals("VM-HDFCBK", refund.getSmsSender());
+        // A sender without a body, and "null" for the optional fields
+        Transaction reversal = sink.transactions.get(1);
+        assertEquals(8, reversal.getId());
+        assertEquals(-2000, reversal.getAmountPaise());
+        assertFalse(reversal.isExcludedFromSummary());
+        assertNull(reversal.getAccountId());
+        assertNull(reversal.getLinkedRecurringPaymentId());
+        assertNull(reversal.getSmsBody());
+        assertEquals("VM-HDFCBK", reversal.getSmsSender());
+    }
+
+    @Test
+    public void read_fieldsBeforeAnySectionAreIgnored() throws IOException {
+        CollectingSink sink = new CollectingSink();
+        LegacyBackupReader.read(new BufferedReader(new StringReader(
+                "ID: 1\nName: Food\nType: EXPENSE\n---\n=== CATEGORIES ===\nName: Salary\nType: INCOME\n")),
+                null, sink);
+
+        // The last entity has no trailing separator
+        assertEquals(1, sink.categories.size());
+        assertEquals("Salary", sink.categories.get(0).getName());
+    }
+
+    private CollectingSink read(String fixture, String section) throws IOException {
+        CollectingSink sink = new CollectingSink();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                getClass().getResourceAsStream(fixture), StandardCharsets.UTF_8))) {
+            LegacyBackupReader.read(in, section, sink);
+        }
+        return sink;
+    }
+
+    private static Date date(String instant) {
+        return Date.from(Instant.parse(instant));
+    }
+
+    private static class CollectingSink implements BackupReader.Sink {
+        final List<Category> categories = new ArrayList<>();
+        final List<RecurringPayment> payments = new ArrayList<>();
+        final List<Account> accounts = new ArrayList<>();
+        final List<Transaction> transactions = new ArrayList<>();
+
+        @Override
+        public void onCategory(Category category) {
+            categories.add(category);
+        }
+
+        @Override
+        public void onRecurringPayment(RecurringPayment payment) {
+            payments.add(payment);
+        }
+
+        @Override
+        public void onAccount(Account account) {
+            accounts.add(account);
+        }
+
+        @Override
+        public void onTransaction(Transaction transaction) {
+            transactions.add(transaction);
+        }
+    }
+}
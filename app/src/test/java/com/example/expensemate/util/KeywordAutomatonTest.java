@@ -0,0 +1,108 @@
+package com.example.expensemate.util;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class KeywordAutomatonTest {
+    private static long bits(int... indexes) {
+        long mask = 0;
+        for (int index : indexes) {
+            mask |= 1L << index;
+        }
+        return mask;
+    }
+
+    @Test
+    public void overlappingKeywords() {
+        KeywordAutomaton automaton = new KeywordAutomaton("he", "she", "his", "hers");
+        assertEquals(bits(0, 1, 3), automaton.scan("ushers"));
+        assertEquals(bits(0, 1, 2), automaton.scan("ahishe"));
+        assertEquals(bits(0), automaton.scan("hhhe"));
+    }
+
+    @Test
+    public void keywordInsideAnother() {
+        KeywordAutomaton automaton = new KeywordAutomaton("debited", "bit", "credit", "edit");
+        assertEquals(bits(0, 1), automaton.scan("Acct XX12 debited for Rs 500"));
+        assertEquals(bits(2, 3), automaton.scan("credited to A/c XX34"));
+    }
+
+    @Test
+    public void ignoresCase() {
+        KeywordAutomaton automaton = new KeywordAutomaton("Debited", "UPI");
+        assertEquals(bits(0, 1), automaton.scan("DEBITED via upi"));
+        assertEquals(bits(0, 1), automaton.scan("dEbItEd Via UpI"));
+    }
+
+    @Test
+    public void noMatch() {
+        KeywordAutomaton automaton = new KeywordAutomaton("debited", "credited");
+        assertEquals(0L, automaton.scan("Your OTP is 123456, do not share it"));
+        assertEquals(0L, automaton.scan("debite dcredite"));
+        assertEquals(0L, automaton.scan(""));
+        assertEquals(0L, automaton.scan(null));
+    }
+
+    @Test
+    public void charactersOutsideTheKeywordsRestartTheMatch() {
+        KeywordAutomaton automaton = new KeywordAutomaton("rs.", "inr");
+        assertEquals(0L, automaton.scan("r₹s. i n r"));
+        assertEquals(bits(0, 1), automaton.scan("₹ Rs.500 INR"));
+    }
+
+    @Test
+    public void sixtyFourKeywords() {
+        String[] keywords = new String[64];
+        for (int i = 0; i < keywords.length; i++) {
+            keywords[i] = "k" + i + ";";
+        }
+        KeywordAutomaton automaton = new KeywordAutomaton(keywords);
+        assertEquals(bits(63), automaton.scan("xk63;x"));
+        assertEquals(bits(1, 11), automaton.scan("k1;k11;"));
+    }
+
+    @Test
+    public void matchesContainsOnRandomText() {
+        String[] keywords = {"ab", "abc", "bca", "c", "aab", "bb"};
+        KeywordAutomaton automaton = new KeywordAutomaton(keywords);
+        Random random = new Random(42);
+        for (int n = 0; n < 2000; n++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                text.append("abcAB-".charAt(random.nextInt(6)));
+            }
+            String lower = text.toString().toLowerCase(Locale.ROOT);
+            long expected = 0;
+            for (int k = 0; k < keywords.length; k++) {
+                if (lower.contains(keywords[k])) {
+                    expected |= 1L << k;
+                }
+            }
+            assertEquals("Keywords in " + text, expected, automaton.scan(text));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyKeyword() {
+        new KeywordAutomaton("debited", "");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonAsciiKeyword() {
+        new KeywordAutomaton("₹");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMoreThan64Keywords() {
+        String[] keywords = new String[65];
+        for (int i = 0; i < keywords.length; i++) {
+            keywords[i] = "k" + i;
+        }
+        new KeywordAutomaton(keywords);
+    }
+}
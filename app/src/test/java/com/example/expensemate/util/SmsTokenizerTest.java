@@ -0,0 +1,154 @@
+package com.example.expensemate.util;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Amounts and dates are parsed out of whole bank messages, the way SmsTransactionHandler hands the
+ * tokenizer the range of a matched group.
+ */
+public class SmsTokenizerTest {
+    private static final String KOLKATA = "Asia/Kolkata";
+
+    private static long amount(String sms, String token) {
+        int start = sms.indexOf(token);
+        assertTrue("Token not in message: " + token, start >= 0);
+        return SmsTokenizer.parseAmountPaise(sms, start, start + token.length());
+    }
+
+    private static long date(String sms, String token, String timeZone) {
+        int start = sms.indexOf(token);
+        assertTrue("Token not in message: " + token, start >= 0);
+        return SmsTokenizer.parseDate(sms, start, start + token.length(), TimeZone.getTimeZone(timeZone));
+    }
+
+    private static long date(String token) {
+        return date(token, token, KOLKATA);
+    }
+
+    private static long millis(int year, int month, int day, int hour, int minute, int second, String timeZone) {
+        return LocalDateTime.of(year, month, day, hour, minute, second)
+                .atZone(ZoneId.of(timeZone)).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void amount_bankMessages() {
+        String icici = "ICICI Bank Acct XX123 debited for Rs 1,250.00 on 05-Jan-24; AMAZON credited. UPI:401234567890";
+        assertEquals(125000L, amount(icici, "Rs 1,250.00"));
+
+        String kotak = "Sent Rs.250.50 from Kotak Bank AC X1234 to abc@ybl on 01-02-24.UPI Ref 412345678901";
+        assertEquals(25050L, amount(kotak, "Rs.250.50"));
+
+        String hdfc = "Spent INR 99.5 On HDFC Bank Card 1234 At SWIGGY On 2024-01-05";
+        assertEquals(9950L, amount(hdfc, "INR 99.5"));
+
+        String sbi = "Dear Customer, ₹1,23,456.78 credited to your A/c XX5678 on 12/01/2024";
+        assertEquals(12345678L, amount(sbi, "₹1,23,456.78"));
+    }
+
+    @Test
+    public void amount_prefixes() {
+        assertEquals(50000L, amount("Rs.500", "Rs.500"));
+        assertEquals(50000L, amount("rs. 500", "rs. 500"));
+        assertEquals(50000L, amount("RS500", "RS500"));
+        assertEquals(50000L, amount("inr 500", "inr 500"));
+        assertEquals(50000L, amount("₹ 500", "₹ 500"));
+        assertEquals(50000L, amount("500", "500"));
+    }
+
+    @Test
+    public void amount_groupingAndPaise() {
+        assertEquals(100000000L, amount("Rs 10,00,000", "Rs 10,00,000"));
+        assertEquals(123456700L, amount("Rs 1,234,567", "Rs 1,234,567"));
+        assertEquals(1L, amount("Rs 0.01", "Rs 0.01"));
+        assertEquals(10L, amount("Rs 0.1", "Rs 0.1"));
+        assertEquals(1200L, amount("Rs 12.", "Rs 12."));
+    }
+
+    @Test
+    public void amount_stopsAtEndOfRange() {
+        String sms = "debited Rs 1,250.00 on 05-Jan-24";
+        int start = sms.indexOf("Rs");
+        assertEquals(12500L, SmsTokenizer.parseAmountPaise(sms, start, start + "Rs 1,25".length()));
+    }
+
+    @Test
+    public void amount_invalid() {
+        assertEquals(SmsTokenizer.INVALID, amount("Rs.", "Rs."));
+        assertEquals(SmsTokenizer.INVALID, amount("Rs ,500", "Rs ,500"));
+        assertEquals(SmsTokenizer.INVALID, amount("balance", "balance"));
+        assertEquals(SmsTokenizer.INVALID, amount("Rs 99999999999999999999", "Rs 99999999999999999999"));
+    }
+
+    @Test
+    public void date_bankMessages() {
+        String icici = "ICICI Bank Acct XX123 debited for Rs 1,250.00 on 05-Jan-24; AMAZON credited.";
+        assertEquals(millis(2024, 1, 5, 0, 0, 0, KOLKATA), date(icici, "05-Jan-24", KOLKATA));
+
+        String sbi = "Dear Customer, Rs 500 credited to your A/c XX5678 on 12/01/2024 by NEFT";
+        assertEquals(millis(2024, 1, 12, 0, 0, 0, KOLKATA), date(sbi, "12/01/2024", KOLKATA));
+
+        String axis = "INR 250.00 debited A/c no. XX1234 5-01-2024 12:30:45 UPI/P2M/412345678901";
+        assertEquals(millis(2024, 1, 5, 12, 30, 45, KOLKATA), date(axis, "5-01-2024 12:30:45", KOLKATA));
+    }
+
+    @Test
+    public void date_formats() {
+        assertEquals(millis(2024, 1, 12, 0, 0, 0, KOLKATA), date("12-Jan-24"));
+        assertEquals(millis(2024, 1, 12, 0, 0, 0, KOLKATA), date("12-01-24"));
+        assertEquals(millis(2024, 1, 12, 0, 0, 0, KOLKATA), date("12/01/2024"));
+        assertEquals(millis(2024, 1, 5, 12, 30, 45, KOLKATA), date("05JAN2024 12:30:45"));
+        assertEquals(millis(2024, 1, 5, 12, 30, 0, KOLKATA), date("05 Jan 2024 12:30"));
+        assertEquals(millis(2024, 12, 31, 23, 59, 59, KOLKATA), date("31-dec-2024 23:59:59"));
+    }
+
+    @Test
+    public void date_twoDigitYearsAre2000s() {
+        assertEquals(millis(2000, 3, 1, 0, 0, 0, KOLKATA), date("01-Mar-00"));
+        assertEquals(millis(2099, 3, 1, 0, 0, 0, KOLKATA), date("01-03-99"));
+    }
+
+    @Test
+    public void date_leapDays() {
+        assertEquals(millis(2024, 2, 29, 0, 0, 0, KOLKATA), date("29-Feb-24"));
+        assertEquals(millis(2000, 2, 29, 0, 0, 0, KOLKATA), date("29/02/2000"));
+        assertEquals(SmsTokenizer.INVALID, date("29-02-2023"));
+        assertEquals(SmsTokenizer.INVALID, date("29/02/2100"));
+    }
+
+    @Test
+    public void date_invalidCalendarDates() {
+        assertEquals(SmsTokenizer.INVALID, date("31-04-2024"));
+        assertEquals(SmsTokenizer.INVALID, date("32-Jan-24"));
+        assertEquals(SmsTokenizer.INVALID, date("00-01-2024"));
+        assertEquals(SmsTokenizer.INVALID, date("12-13-2024"));
+        assertEquals(SmsTokenizer.INVALID, date("12-00-2024"));
+        assertEquals(SmsTokenizer.INVALID, date("12-Foo-24"));
+        assertEquals(SmsTokenizer.INVALID, date("12-01-202"));
+        assertEquals(SmsTokenizer.INVALID, date("12-01-2024 24:00"));
+        assertEquals(SmsTokenizer.INVALID, date("12-01-2024 12:60"));
+        assertEquals(SmsTokenizer.INVALID, date("on 12-01-2024"));
+    }
+
+    @Test
+    public void date_usesTheTimeZoneOffsetOfThatDate() {
+        String zone = "Europe/London";
+        assertEquals(millis(2024, 7, 5, 12, 30, 45, zone), date("05-07-2024 12:30:45", "05-07-2024 12:30:45", zone));
+        assertEquals(millis(2024, 1, 5, 12, 30, 45, zone), date("05-01-2024 12:30:45", "05-01-2024 12:30:45", zone));
+    }
+
+    @Test
+    public void sameDayAndStartOfDay() {
+        TimeZone kolkata = TimeZone.getTimeZone(KOLKATA);
+        long midnight = millis(2024, 1, 5, 0, 0, 0, KOLKATA);
+        assertTrue(SmsTokenizer.isStartOfDay(midnight, kolkata));
+        assertFalse(SmsTokenizer.isStartOfDay(midnight + 1000, kolkata));
+        assertTrue(SmsTokenizer.isSameDay(midnight, millis(2024, 1, 5, 23, 59, 59, KOLKATA), kolkata));
+        assertFalse(SmsTokenizer.isSameDay(midnight, midnight - 1, kolkata));
+    }
+}
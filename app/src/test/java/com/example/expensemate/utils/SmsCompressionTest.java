@@ -0,0 +1,138 @@
+package com.example.expensemate.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Blobs are stored, so besides round trips the format is checked against bytes written by the current
+ * code: a change to the dictionary changes its id in the zlib header and can no longer read them.
+ * Whole compressed outputs are not pinned, zlib builds may encode the same input differently.
+ */
+public class SmsCompressionTest {
+    private static final String ICICI_DEBIT = "ICICI Bank Acct XX123 debited for Rs 1,250.00 on 01-Feb-24; " +
+            "AMAZON credited. UPI:403212345678. Call 18002662 for dispute or SMS BLOCK 123 to 9215676766.";
+
+    // Format version, zlib header with a preset dictionary, Adler-32 of DICTIONARY_1
+    private static final byte[] HEADER_1 = bytes(0x01, 0x78, 0xF9, 0xE7, 0x7F, 0xFC, 0xA8);
+
+    private static final byte[] ICICI_DEBIT_1 = bytes(
+            0x01, 0x78, 0xF9, 0xE7, 0x7F, 0xFC, 0xA8, 0xC3, 0xF4, 0x94, 0xA1, 0x91, 0x31, 0xBA, 0xBF, 0x0C,
+            0x75, 0x8C, 0x4C, 0x0D, 0xF4, 0x0C, 0x0C, 0x40, 0x86, 0x19, 0x18, 0xEA, 0xBA, 0xA5, 0x26, 0xE9,
+            0x1A, 0x99, 0x58, 0x2B, 0x38, 0xFA, 0x3A, 0x46, 0xF9, 0xFB, 0x21, 0x79, 0x18, 0x98, 0x06, 0xAC,
+            0x4C, 0x0C, 0x8C, 0x8D, 0x80, 0x46, 0x98, 0x98, 0x9A, 0x99, 0x5B, 0xE8, 0x11, 0x9B, 0x92, 0x41,
+            0x76, 0x02, 0x3D, 0x67, 0x69, 0x64, 0x08, 0xD4, 0x06, 0x84, 0x66, 0x7A, 0x00, 0xAD, 0x03, 0x29,
+            0x56);
+
+    private static final byte[] OTP_1 = bytes(
+            0x01, 0x78, 0xF9, 0xE7, 0x7F, 0xFC, 0xA8, 0xF3, 0x0F, 0x09, 0x50, 0x30, 0xB1, 0x30, 0x32, 0x54,
+            0x78, 0xD4, 0xB4, 0x13, 0x00, 0x15, 0xC8, 0x04, 0x20);
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private static void assertRoundTrip(String text) {
+        assertEquals(text, SmsCompression.decompress(SmsCompression.compress(text)));
+    }
+
+    @Test
+    public void null_staysNull() {
+        assertNull(SmsCompression.compress(null));
+        assertNull(SmsCompression.decompress(null));
+    }
+
+    @Test
+    public void roundTrip_bankMessages() {
+        assertRoundTrip("");
+        assertRoundTrip(" ");
+        assertRoundTrip(ICICI_DEBIT);
+        assertRoundTrip("Dear Customer, Acct XX5678 is credited with Rs 1,00,000.00 on 30-Jan-24 from EMPLOYER. " +
+                "UPI:403298765432-ICICI Bank.");
+        assertRoundTrip("Sent Rs.250.00\nFrom HDFC Bank A/C x1234\nTo SWIGGY\nOn 29/01/24\nRef 403112233445\n" +
+                "Not You?\nCall 18002586161/SMS BLOCK UPI to 7308080808");
+    }
+
+    @Test
+    public void roundTrip_nonAscii() {
+        assertRoundTrip("₹1,250.00 debited from A/c XX123 at स्टोर on 01-Feb-24 😀");
+        assertRoundTrip("\u0000�\r\n\t");
+    }
+
+    @Test
+    public void roundTrip_longerThanBuffers() {
+        StringBuilder repeated = new StringBuilder();
+        while (repeated.length() < 10000) {
+            repeated.append(ICICI_DEBIT);
+        }
+        assertRoundTrip(repeated.toString());
+
+        // Random text barely compresses, the output takes several deflate calls
+        Random random = new Random(42);
+        StringBuilder noise = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            noise.append((char) (0x20 + random.nextInt(0x2000)));
+        }
+        assertRoundTrip(noise.toString());
+    }
+
+    @Test
+    public void compress_bankMessageShrinks() {
+        // The dictionary is what lets a single message compress this far
+        assertTrue(SmsCompression.compress(ICICI_DEBIT).length < ICICI_DEBIT.length() * 2 / 3);
+    }
+
+    @Test
+    public void compress_writesVersion1Header() {
+        for (String text : new String[]{"", "OTP 4821 ₹", ICICI_DEBIT}) {
+            byte[] blob = SmsCompression.compress(text);
+            assertArrayEquals(HEADER_1, Arrays.copyOf(blob, HEADER_1.length));
+        }
+    }
+
+    @Test
+    public void decompress_storedVersion1Blobs() {
+        assertEquals(ICICI_DEBIT, SmsCompression.decompress(ICICI_DEBIT_1));
+        assertEquals("OTP 4821 ₹", SmsCompression.decompress(OTP_1));
+        assertEquals("", SmsCompression.decompress(bytes(0x01, 0x78, 0xF9, 0xE7, 0x7F, 0xFC, 0xA8, 0x03,
+                0x00, 0x00, 0x00, 0x00, 0x01)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompress_emptyBlob() {
+        SmsCompression.decompress(new byte[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompress_unknownVersion() {
+        byte[] blob = OTP_1.clone();
+        blob[0] = 2;
+        SmsCompression.decompress(blob);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompress_truncated() {
+        SmsCompression.decompress(Arrays.copyOf(ICICI_DEBIT_1, ICICI_DEBIT_1.length - 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompress_otherDictionary() {
+        byte[] blob = OTP_1.clone();
+        blob[6] ^= 1;
+        SmsCompression.decompress(blob);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompress_corruptChecksum() {
+        byte[] blob = OTP_1.clone();
+        blob[blob.length - 1] ^= 1;
+        SmsCompression.decompress(blob);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.expensemate.utils;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Fingerprints are stored, so they are checked against reference XXH64 values rather than against
+ * themselves. Inputs cover every path of the hash: the byte tail, the 4 byte step, the 8 byte step
+ * and the 32 byte stripes.
+ */
+public class SmsFingerprintTest {
+    private static long hash(String input) {
+        return SmsFingerprint.xxHash64(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void xxHash64_shorterThan4Bytes() {
+        assertEquals(0xEF46DB3751D8E999L, hash(""));
+        assertEquals(0xD24EC4F1A98C6E5BL, hash("a"));
+        assertEquals(0x44BC2CF5AD770999L, hash("abc"));
+    }
+
+    @Test
+    public void xxHash64_shorterThan8Bytes() {
+        assertEquals(0xDE0327B0D25D92CCL, hash("abcd"));
+        assertEquals(0x1860940E2902822DL, hash("abcdefg"));
+    }
+
+    @Test
+    public void xxHash64_shorterThan32Bytes() {
+        assertEquals(0x3AD351775B4634B7L, hash("abcdefgh"));
+        assertEquals(0x16058C7B947DA137L, hash("abcdefghijklmnopqrstuvwxyz01234"));
+    }
+
+    @Test
+    public void xxHash64_atLeast32Bytes() {
+        assertEquals(0xBF2CD639B4143B80L, hash("abcdefghijklmnopqrstuvwxyz012345"));
+        assertEquals(0xFBCEA83C8A378BF1L, hash("Nobody inspects the spammish repetition"));
+    }
+
+    @Test
+    public void of_hashesBodyAndSender() {
+        assertEquals(Long.valueOf(0xE8663BAC27605D17L),
+                SmsFingerprint.of("rs 1,250.00 debited from a/c xx1234", "vm-hdfcbk"));
+    }
+
+    @Test
+    public void of_ignoresCaseAndSurroundingWhitespace() {
+        assertEquals(SmsFingerprint.of("rs 1,250.00 debited from a/c xx1234", "vm-hdfcbk"),
+                SmsFingerprint.of("  Rs 1,250.00 debited from A/c XX1234\n", " VM-HDFCBK "));
+    }
+
+    @Test
+    public void of_keepsBodyAndSenderApart() {
+        assertNotEquals(SmsFingerprint.of("a", "b"), SmsFingerprint.of("b", "a"));
+    }
+
+    @Test
+    public void of_missingBodyOrSender() {
+        assertNull(SmsFingerprint.of(null, "vm-hdfcbk"));
+        assertNull(SmsFingerprint.of("rs 1,250.00 debited", null));
+    }
+}